@@ -0,0 +1,153 @@
+package cs5250_project10and11_nand2tetris.benchmarks;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import cs5250_project10and11_nand2tetris.CompilerOptions;
+import cs5250_project10and11_nand2tetris.CorpusGenerator;
+import cs5250_project10and11_nand2tetris.JackCompiler;
+import cs5250_project10and11_nand2tetris.VMInterpreter;
+
+// Differential check of the --asm backend. Each program is built twice under every flag set:
+// with --asm, linked against the Jack test OS in resources/hackos and run on HackMachine, and as
+// .vm files run by VMInterpreter on its native OS. The two must print the same text. Rerun it
+// after changing AsmVMWriter (the D-register stack-top cache in particular) or the peephole rules.
+//
+//   java -cp target/benchmarks.jar cs5250_project10and11_nand2tetris.benchmarks.AsmCheck
+//
+// Exits with 1 when any run differs or fails. Programs come from project11 under jack.root
+// (see Corpus) and from CorpusGenerator, kept small enough to fit the 32K ROM.
+public class AsmCheck {
+    static final String[] PROGRAMS = {"Seven", "Average", "ComplexArrays", "ConvertToBin"};
+    static final String[] OS_CLASSES = {"Array", "Keyboard", "Math", "Memory", "Output", "Screen", "String", "Sys"};
+    static final String[][] FLAG_SETS = {
+            {},
+            {"--fold", "--strength-reduce", "8", "--pool-strings", "--peephole", "all", "--inline", "20"},
+            {"--pipeline", "ast", "--whole-program"},
+            {"-j", "4", "--vmb"}};
+    static final int GENERATED_PROGRAMS = 5;
+    static final String INPUT = "3\n10\n20\n31\n";  // Average reads a count and that many numbers
+    static final long MAX_CYCLES = 200_000_000L;
+    static final long MAX_STEPS = 50_000_000L;
+
+    private final PrintStream discard = new PrintStream(OutputStream.nullOutputStream());
+    private int failures;
+
+    public static void main(String[] args) throws IOException {
+        AsmCheck check = new AsmCheck();
+        Path work = Files.createTempDirectory("jack-asm-check");
+        try {
+            File os = check.buildOs(work.resolve("os"));
+
+            Corpus project11 = Corpus.load("project11");
+            List<File> programs = new ArrayList<>();
+            for (String name : PROGRAMS) programs.add(project11.directory.resolve(name).toFile());
+            for (int seed = 1; seed <= GENERATED_PROGRAMS; seed++) {
+                CorpusGenerator.Settings settings = new CorpusGenerator.Settings();
+                settings.seed = seed;
+                settings.classes = 2;
+                settings.subroutines = 4;
+                File directory = work.resolve("Generated" + seed).toFile();
+                new CorpusGenerator(settings).write(directory);
+                programs.add(directory);
+            }
+
+            for (File program : programs) {
+                for (String[] flags : FLAG_SETS) {
+                    // The generated programs print a string per statement and run out of heap unless they are pooled
+                    if (program.getName().startsWith("Generated") && !Arrays.asList(flags).contains("--pool-strings")) {
+                        flags = append(flags, "--pool-strings");
+                    }
+                    check.compare(program, flags, os);
+                }
+            }
+            project11.delete();
+        } finally {
+            delete(work.toFile());
+        }
+        System.out.println(check.failures == 0 ? "All runs match" : check.failures + " run(s) differ or failed");
+        System.exit(check.failures == 0 ? 0 : 1);
+    }
+
+    // Copies the test OS out of the jar and compiles it to .vm for --os
+    private File buildOs(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        for (String name : OS_CLASSES) {
+            try (InputStream in = AsmCheck.class.getResourceAsStream("/hackos/" + name + ".jack")) {
+                if (in == null) throw new FileNotFoundException("hackos/" + name + ".jack is not on the classpath");
+                Files.copy(in, directory.resolve(name + ".jack"));
+            }
+        }
+        compile(directory.toFile(), new String[0]);
+        return directory.toFile();
+    }
+
+    private void compare(File program, String[] flags, File os) throws IOException {
+        String label = program.getName() + " [" + String.join(" ", flags) + "]";
+        try {
+            compile(program, append(flags, "--asm", "--os", os.getPath()));
+            HackMachine machine = HackMachine.assemble(JackCompiler.programFileFor(program));
+            HackMachine.Run hack = machine.run(INPUT, MAX_CYCLES);
+
+            CompilerOptions options = compile(program, flags);
+            JackCompiler compiler = new JackCompiler(options);
+            List<File> vmFiles = new ArrayList<>();
+            for (File jack : JackCompiler.findJackFiles(program, false)) vmFiles.add(compiler.outputFileFor(jack));
+            VMInterpreter vm = VMInterpreter.load(vmFiles);
+            ByteArrayOutputStream printed = new ByteArrayOutputStream();
+            VMInterpreter.Run run = vm.run(new BufferedReader(new StringReader(INPUT)),
+                    new PrintStream(printed, true, StandardCharsets.UTF_8), MAX_STEPS);
+            String expected = printed.toString(StandardCharsets.UTF_8);
+
+            if (!hack.halted()) {
+                fail(label, "did not halt on the Hack machine within " + MAX_CYCLES + " cycles");
+            } else if (run.status != VMInterpreter.Status.HALTED) {
+                fail(label, "interpreter stopped with " + run.status + ": " + run.message);
+            } else if (!hack.output().equals(expected)) {
+                fail(label, "output differs\n  interpreter: " + escape(expected) + "\n  hack:        " + escape(hack.output()));
+            } else {
+                System.out.printf("same  %-60s %6d instructions %,12d cycles%n", label, machine.romSize(), hack.cycles());
+            }
+        } catch (IOException | RuntimeException e) {
+            fail(label, e.toString());
+        }
+    }
+
+    private CompilerOptions compile(File directory, String[] flags) throws IOException {
+        CompilerOptions options = new CompilerOptions();
+        options.parse(flags);
+        ByteArrayOutputStream errors = new ByteArrayOutputStream();
+        int failed = new JackCompiler(options).compile(JackCompiler.findJackFiles(directory, false), discard,
+                new PrintStream(errors, true, StandardCharsets.UTF_8));
+        if (failed != 0) throw new IOException("compiling " + directory + " failed: " + errors.toString(StandardCharsets.UTF_8).trim());
+        return options;
+    }
+
+    private void fail(String label, String reason) {
+        failures++;
+        System.out.println("DIFF  " + label + ": " + reason);
+    }
+
+    private static String[] append(String[] flags, String... more) {
+        String[] all = Arrays.copyOf(flags, flags.length + more.length);
+        System.arraycopy(more, 0, all, flags.length, more.length);
+        return all;
+    }
+
+    private static String escape(String text) {
+        return text.replace("\n", "\\n");
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) delete(child);
+        }
+        file.delete();
+    }
+}
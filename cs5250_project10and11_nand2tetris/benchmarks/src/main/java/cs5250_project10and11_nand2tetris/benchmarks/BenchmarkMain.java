@@ -0,0 +1,25 @@
+package cs5250_project10and11_nand2tetris.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Runs the JMH benchmarks with the settings used for tracking results over time: the gc
+// profiler for allocation per operation and JSON results in target/jmh-result.json.
+// Any other JMH arguments are passed through, e.g. a benchmark name pattern or -p corpus=synthetic;
+// giving -rf, -rff or -prof replaces the matching default.
+public class BenchmarkMain {
+    public static void main(String[] args) throws Exception {
+        List<String> arguments = new ArrayList<>(Arrays.asList(args));
+        if (!arguments.contains("-prof")) {
+            arguments.addAll(List.of("-prof", "gc"));
+        }
+        if (!arguments.contains("-rf")) {
+            arguments.addAll(List.of("-rf", "json"));
+        }
+        if (!arguments.contains("-rff")) {
+            arguments.addAll(List.of("-rff", "target/jmh-result.json"));
+        }
+        org.openjdk.jmh.Main.main(arguments.toArray(new String[0]));
+    }
+}
@@ -0,0 +1,60 @@
+package cs5250_project10and11_nand2tetris.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import cs5250_project10and11_nand2tetris.CompilationEngine;
+import cs5250_project10and11_nand2tetris.CompilerOptions;
+
+// Compiles one file to .vm per operation, cycling through the corpus, with the compiler flags
+// given by the flags parameter. The lines counter is reported as source lines/s; with
+// -prof gc, gc.alloc.rate.norm is the allocation per file.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class CompileBenchmark {
+    @Param({"project11", "synthetic", "generated"})
+    public String corpus;
+
+    @Param({"", "--pipeline ast", "--fold --strength-reduce 8 --peephole all"})
+    public String flags;
+
+    private Corpus inputs;
+    private CompilerOptions options;
+    private int next;
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Counters {
+        public long lines;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            lines = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void load() {
+        inputs = Corpus.load(corpus);
+        options = new CompilerOptions();
+        if (!flags.isBlank()) options.parse(flags.trim().split("\\s+"));
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() {
+        inputs.delete();
+    }
+
+    @Benchmark
+    public CompilationEngine compile(Counters counters) throws IOException {
+        int file = next++ % inputs.files.size();
+        counters.lines += inputs.lines[file];
+        return new CompilationEngine(inputs.files.get(file), inputs.output(inputs.files.get(file), ".vm"), options);
+    }
+}
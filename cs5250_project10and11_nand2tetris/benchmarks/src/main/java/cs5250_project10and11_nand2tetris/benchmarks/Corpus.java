@@ -0,0 +1,127 @@
+package cs5250_project10and11_nand2tetris.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import cs5250_project10and11_nand2tetris.CorpusGenerator;
+import cs5250_project10and11_nand2tetris.JackCompiler;
+
+// Benchmark inputs, copied into a temporary directory so that compiler outputs never land
+// next to the checked-in sources.
+//
+//   project10, project11  the checked-in programs
+//   synthetic             Pong and Square with every subroutine repeated under new names,
+//                         200 times: 1 400 to 36 000 lines per class, 108 000 in all
+//   generated             CorpusGenerator output, seed 1: four 1 MB classes and Main
+//
+// The checked-in programs are found under the jack.root system property, by default the
+// parent of the working directory (benchmarks/..). Forked benchmark JVMs only see it when
+// passed with -jvmArgsAppend -Djack.root=...
+final class Corpus {
+    static final int SYNTHETIC_COPIES = 200;
+
+    private static final Pattern SUBROUTINE = Pattern.compile(
+            "^(\\s*(?:constructor|function|method)\\s+\\w+\\s+)(\\w+)(\\s*\\()", Pattern.MULTILINE);
+
+    final Path directory;
+    final List<File> files = new ArrayList<>();
+    final int[] lines;      // source lines of each file
+
+    private Corpus(Path directory, int[] lines) {
+        this.directory = directory;
+        this.lines = lines;
+    }
+
+    static Corpus load(String name) {
+        try {
+            Path root = Paths.get(System.getProperty("jack.root", "..")).toAbsolutePath().normalize();
+            Path directory = Files.createTempDirectory("jack-bench-" + name);
+            switch (name) {
+                case "project10" -> copyTree(root.resolve("project10"), directory);
+                case "project11" -> copyTree(root.resolve("project11"), directory);
+                case "synthetic" -> {
+                    for (String program : new String[] {"Pong", "Square"}) {
+                        Path target = Files.createDirectories(directory.resolve(program));
+                        for (File jack : JackCompiler.findJackFiles(root.resolve("project11").resolve(program).toFile(), false)) {
+                            String source = Files.readString(jack.toPath());
+                            Files.writeString(target.resolve(jack.getName()), replicate(source, SYNTHETIC_COPIES));
+                        }
+                    }
+                }
+                case "generated" -> {
+                    CorpusGenerator.Settings settings = new CorpusGenerator.Settings();
+                    settings.bytesPerClass = 1 << 20;
+                    new CorpusGenerator(settings).write(directory.toFile());
+                }
+                default -> throw new IllegalArgumentException("Unknown corpus '" + name + "'");
+            }
+
+            List<File> files = JackCompiler.findJackFiles(directory.toFile(), true);
+            int[] lines = new int[files.size()];
+            for (int i = 0; i < lines.length; i++) {
+                try (Stream<String> stream = Files.lines(files.get(i).toPath())) {
+                    lines[i] = (int) stream.count();
+                }
+            }
+            if (files.isEmpty()) {
+                throw new IllegalStateException("No .jack files for corpus '" + name + "' under " + root
+                        + "; set -Djack.root to the directory holding project10 and project11");
+            }
+            Corpus corpus = new Corpus(directory, lines);
+            corpus.files.addAll(files);
+            return corpus;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // The output file for a source, inside the corpus directory
+    File output(File jack, String extension) {
+        return new File(jack.getParentFile(), jack.getName().replace(".jack", extension));
+    }
+
+    void delete() {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // The class with its subroutines repeated copies times, each copy renamed name_k.
+    // Calls still go to the original subroutines, so the result compiles like the source.
+    static String replicate(String source, int copies) {
+        Matcher first = SUBROUTINE.matcher(source);
+        if (!first.find()) return source;
+        int start = first.start();
+        int end = source.lastIndexOf('}');
+        String subroutines = source.substring(start, end);
+
+        StringBuilder result = new StringBuilder(source.length() * (copies + 1));
+        result.append(source, 0, end);
+        for (int k = 1; k <= copies; k++) {
+            result.append(SUBROUTINE.matcher(subroutines).replaceAll("$1$2_" + k + "$3"));
+        }
+        result.append(source, end, source.length());
+        return result.toString();
+    }
+
+    private static void copyTree(Path from, Path to) throws IOException {
+        try (Stream<Path> paths = Files.walk(from)) {
+            for (Path path : (Iterable<Path>) paths::iterator) {
+                if (!path.toString().endsWith(".jack")) continue;
+                Path target = to.resolve(from.relativize(path));
+                Files.createDirectories(target.getParent());
+                Files.copy(path, target);
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package cs5250_project10and11_nand2tetris.benchmarks;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import cs5250_project10and11_nand2tetris.CompilerOptions;
+import cs5250_project10and11_nand2tetris.JackCompiler;
+
+// Latency of compiling a whole corpus the way the command line does, through JackCompiler
+// with its worker pool and console reporting (sent to a null stream). Sampled, so the JSON
+// results carry percentiles as well as the mean.
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class EndToEndBenchmark {
+    @Param({"project11", "synthetic", "generated"})
+    public String corpus;
+
+    @Param({"1", "0"})
+    public int jobs;
+
+    private Corpus inputs;
+    private CompilerOptions options;
+    private final PrintStream discard = new PrintStream(OutputStream.nullOutputStream());
+
+    @Setup(Level.Trial)
+    public void load() {
+        inputs = Corpus.load(corpus);
+        options = new CompilerOptions();
+        options.jobs = jobs;
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() {
+        inputs.delete();
+    }
+
+    @Benchmark
+    public int compileAll() {
+        return new JackCompiler(options).compile(inputs.files, discard, discard);
+    }
+}
@@ -0,0 +1,188 @@
+package cs5250_project10and11_nand2tetris.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Hack assembler and CPU, enough to run what AsmVMWriter produces. Text I/O goes through three
+// memory-mapped ports that the test OS in resources/hackos uses instead of the screen and
+// keyboard: writing to OUTPUT prints a character (128 is newLine), reading INPUT takes the next
+// input character (newLine at the end of a line or of the input), and writing HALT stops.
+final class HackMachine {
+    static final int ROM_SIZE = 32768;
+    static final int OUTPUT = 32000;
+    static final int INPUT = 32001;
+    static final int HALT = 32002;
+
+    private static final Map<String, Integer> COMPUTATIONS = new HashMap<>();
+    static {
+        String[][] codes = {
+                {"0", "0101010"}, {"1", "0111111"}, {"-1", "0111010"}, {"D", "0001100"}, {"A", "0110000"},
+                {"!D", "0001101"}, {"!A", "0110001"}, {"-D", "0001111"}, {"-A", "0110011"}, {"D+1", "0011111"},
+                {"A+1", "0110111"}, {"D-1", "0001110"}, {"A-1", "0110010"}, {"D+A", "0000010"}, {"D-A", "0010011"},
+                {"A-D", "0000111"}, {"D&A", "0000000"}, {"D|A", "0010101"}};
+        for (String[] code : codes) {
+            int bits = Integer.parseInt(code[1], 2);
+            COMPUTATIONS.put(code[0], bits);
+            if (code[0].contains("A")) COMPUTATIONS.put(code[0].replace('A', 'M'), bits | 0b1000000);
+        }
+        for (String sum : new String[] {"D+A", "D&A", "D|A", "D+M", "D&M", "D|M"}) {
+            COMPUTATIONS.put(sum.charAt(2) + sum.substring(1, 2) + "D", COMPUTATIONS.get(sum)); // A+D for D+A
+        }
+    }
+
+    private final int[] rom;
+
+    private HackMachine(int[] rom) {
+        this.rom = rom;
+    }
+
+    // Outcome of one run: what was printed and how many instructions it took
+    record Run(String output, long cycles, boolean halted) {
+    }
+
+    static HackMachine assemble(File asm) throws IOException {
+        List<String> lines = Files.readAllLines(asm.toPath());
+        Map<String, Integer> symbols = new HashMap<>();
+        String[] registers = {"SP", "LCL", "ARG", "THIS", "THAT"};
+        for (int i = 0; i < registers.length; i++) symbols.put(registers[i], i);
+        for (int i = 0; i < 16; i++) symbols.put("R" + i, i);
+        symbols.put("SCREEN", 16384);
+        symbols.put("KBD", 24576);
+
+        // First pass: labels
+        int address = 0;
+        for (int i = 0; i < lines.size(); i++) {
+            String line = strip(lines.get(i));
+            lines.set(i, line);
+            if (line.isEmpty()) continue;
+            if (line.startsWith("(")) {
+                String label = line.substring(1, line.length() - 1);
+                if (symbols.put(label, address) != null) throw new IOException("Label " + label + " defined twice");
+            } else {
+                address++;
+            }
+        }
+        if (address > ROM_SIZE) throw new IOException(address + " instructions do not fit in the " + ROM_SIZE + " word ROM");
+
+        // Second pass: instructions, with new symbols allocated as variables from RAM[16]
+        int[] rom = new int[address];
+        int pc = 0, nextVariable = 16;
+        for (String line : lines) {
+            if (line.isEmpty() || line.startsWith("(")) continue;
+            if (line.startsWith("@")) {
+                String operand = line.substring(1);
+                Integer value = Character.isDigit(operand.charAt(0)) ? Integer.valueOf(operand) : symbols.get(operand);
+                if (value == null) {
+                    value = nextVariable++;
+                    symbols.put(operand, value);
+                }
+                if (value > 32767) throw new IOException("A-instruction out of range: " + line);
+                rom[pc++] = value;
+            } else {
+                rom[pc++] = encode(line);
+            }
+        }
+        return new HackMachine(rom);
+    }
+
+    private static String strip(String line) {
+        int comment = line.indexOf("//");
+        if (comment >= 0) line = line.substring(0, comment);
+        return line.replace(" ", "").trim();
+    }
+
+    private static int encode(String line) throws IOException {
+        String dest = "", computation = line, jump = "";
+        int equals = computation.indexOf('=');
+        if (equals >= 0) {
+            dest = computation.substring(0, equals);
+            computation = computation.substring(equals + 1);
+        }
+        int semicolon = computation.indexOf(';');
+        if (semicolon >= 0) {
+            jump = computation.substring(semicolon + 1);
+            computation = computation.substring(0, semicolon);
+        }
+        Integer bits = COMPUTATIONS.get(computation);
+        if (bits == null) throw new IOException("Bad instruction: " + line);
+        int destination = (dest.contains("A") ? 4 : 0) | (dest.contains("D") ? 2 : 0) | (dest.contains("M") ? 1 : 0);
+        int condition = switch (jump) {
+            case "" -> 0;
+            case "JGT" -> 1;
+            case "JEQ" -> 2;
+            case "JGE" -> 3;
+            case "JLT" -> 4;
+            case "JNE" -> 5;
+            case "JLE" -> 6;
+            case "JMP" -> 7;
+            default -> throw new IOException("Bad jump: " + line);
+        };
+        return 0xE000 | bits << 6 | destination << 3 | condition;
+    }
+
+    int romSize() {
+        return rom.length;
+    }
+
+    // Runs from address 0 until the program writes HALT or jumps to itself (the bootstrap's
+    // $$HALT loop), or for at most maxCycles instructions
+    Run run(String input, long maxCycles) {
+        int[] ram = new int[32768];
+        StringBuilder output = new StringBuilder();
+        int a = 0, d = 0, pc = 0, read = 0;
+        long cycles = 0;
+        while (cycles < maxCycles) {
+            if (pc >= rom.length) throw new IllegalStateException("Jumped past the end of ROM from " + cycles + " cycles in");
+            int instruction = rom[pc];
+            cycles++;
+            if ((instruction & 0x8000) == 0) {
+                a = instruction;
+                pc++;
+                continue;
+            }
+            int address = a & 0x7FFF;
+            int y = a;
+            if ((instruction & 0x1000) != 0) {
+                if (address == INPUT) {
+                    y = read < input.length() && input.charAt(read) != '\n' ? input.charAt(read) : 128;
+                    read++;
+                } else {
+                    y = ram[address];
+                }
+            }
+            int x = d;
+            if ((instruction & 0x800) != 0) x = 0;
+            if ((instruction & 0x400) != 0) x = ~x;
+            if ((instruction & 0x200) != 0) y = 0;
+            if ((instruction & 0x100) != 0) y = ~y;
+            int result = (instruction & 0x80) != 0 ? x + y : x & y;
+            if ((instruction & 0x40) != 0) result = ~result;
+            result = (short) result;
+
+            if ((instruction & 0x8) != 0) {
+                if (address == OUTPUT) {
+                    output.append(result == 128 ? '\n' : (char) result);
+                } else if (address == HALT) {
+                    return new Run(output.toString(), cycles, true);
+                } else {
+                    ram[address] = result;
+                }
+            }
+            if ((instruction & 0x20) != 0) a = result;
+            if ((instruction & 0x10) != 0) d = result;
+            int condition = instruction & 7;
+            if ((condition & 4) != 0 && result < 0 || (condition & 2) != 0 && result == 0 || (condition & 1) != 0 && result > 0) {
+                int target = a & 0x7FFF;
+                if (target == pc - 1 && rom[target] == target) return new Run(output.toString(), cycles, true); // @L; 0;JMP to itself
+                pc = target;
+            } else {
+                pc++;
+            }
+        }
+        return new Run(output.toString(), cycles, false);
+    }
+}
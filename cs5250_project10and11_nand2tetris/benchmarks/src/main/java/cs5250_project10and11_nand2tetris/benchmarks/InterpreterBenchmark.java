@@ -0,0 +1,85 @@
+package cs5250_project10and11_nand2tetris.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import cs5250_project10and11_nand2tetris.CompilerOptions;
+import cs5250_project10and11_nand2tetris.JackCompiler;
+import cs5250_project10and11_nand2tetris.VMInterpreter;
+
+// Runs a project 11 program in the VM interpreter per operation, compiled once with the flags
+// parameter. The commands and cycles counters are per second like the score, so dividing them
+// by the score gives the VM commands and estimated Hack cycles of one run: the cost of the
+// generated code, independent of how fast the machine running the benchmark is.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class InterpreterBenchmark {
+    @Param({"ComplexArrays", "Average", "ConvertToBin"})
+    public String program;
+
+    @Param({"", "--fold --strength-reduce 8 --pool-strings --peephole all --inline 20"})
+    public String flags;
+
+    private static final String INPUT = "3\n10\n20\n31\n"; // Average reads a count, then the numbers
+
+    private Corpus inputs;
+    private VMInterpreter vm;
+    private long cyclesPerRun;      // the programs are deterministic, so counted once in setup
+    private final PrintStream discard = new PrintStream(OutputStream.nullOutputStream());
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Counters {
+        public long commands;
+        public long cycles;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            commands = 0;
+            cycles = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void load() throws IOException {
+        inputs = Corpus.load("project11");
+        CompilerOptions options = new CompilerOptions();
+        if (!flags.isBlank()) options.parse(flags.trim().split("\\s+"));
+        JackCompiler compiler = new JackCompiler(options);
+        List<File> sources = JackCompiler.findJackFiles(inputs.directory.resolve(program).toFile(), false);
+        if (compiler.compile(sources, discard, discard) != 0) {
+            throw new IllegalStateException("Could not compile " + program);
+        }
+        List<File> outputs = new ArrayList<>();
+        for (File jack : sources) outputs.add(compiler.outputFileFor(jack));
+        vm = VMInterpreter.load(outputs);
+        vm.run(new BufferedReader(new StringReader(INPUT)), discard, 0);
+        cyclesPerRun = vm.cycles();
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() {
+        inputs.delete();
+    }
+
+    @Benchmark
+    public VMInterpreter.Run run(Counters counters) {
+        VMInterpreter.Run run = vm.run(new BufferedReader(new StringReader(INPUT)), discard, 0);
+        counters.commands += run.commands;
+        counters.cycles += cyclesPerRun;
+        return run;
+    }
+}
@@ -0,0 +1,68 @@
+package cs5250_project10and11_nand2tetris.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import cs5250_project10and11_nand2tetris.ParseListener;
+import cs5250_project10and11_nand2tetris.Parser;
+import cs5250_project10and11_nand2tetris.Tokenizer;
+import cs5250_project10and11_nand2tetris.XmlParseListener;
+
+// Parses one file per operation, cycling through the corpus. "xml" writes the parse tree
+// file, "count" only counts nodes, which is what an analysis that never needs XML pays.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ParserBenchmark {
+    @Param({"project10", "synthetic"})
+    public String corpus;
+
+    @Param({"xml", "count"})
+    public String listener;
+
+    private Corpus inputs;
+    private int next;
+
+    private static final class Counter implements ParseListener {
+        int nodes;
+
+        @Override
+        public void enter(Rule rule) {
+            nodes++;
+        }
+
+        @Override
+        public void token(Tokenizer token) {
+            nodes++;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void load() {
+        inputs = Corpus.load(corpus);
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() {
+        inputs.delete();
+    }
+
+    @Benchmark
+    public int parse() throws IOException {
+        File jack = inputs.files.get(next++ % inputs.files.size());
+        Tokenizer tokenizer = new Tokenizer(jack);
+        if (listener.equals("xml")) {
+            new Parser(tokenizer, new XmlParseListener(inputs.output(jack, ".xml")));
+            return 0;
+        }
+        Counter counter = new Counter();
+        new Parser(tokenizer, counter);
+        return counter.nodes;
+    }
+}
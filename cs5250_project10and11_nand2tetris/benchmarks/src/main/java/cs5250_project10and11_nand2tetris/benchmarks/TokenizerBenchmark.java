@@ -0,0 +1,63 @@
+package cs5250_project10and11_nand2tetris.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import cs5250_project10and11_nand2tetris.Tokenizer;
+
+// Lexes one file per operation, cycling through the corpus. The tokens counter is reported
+// as tokens/s; with -prof gc, gc.alloc.rate.norm is the allocation per file.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class TokenizerBenchmark {
+    @Param({"project10", "project11", "synthetic", "generated"})
+    public String corpus;
+
+    @Param({"SCANNER", "REGEX", "STREAMING"})
+    public Tokenizer.Lexing lexing;
+
+    private Corpus inputs;
+    private int next;
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Counters {
+        public long tokens;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            tokens = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void load() {
+        inputs = Corpus.load(corpus);
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() {
+        inputs.delete();
+    }
+
+    @Benchmark
+    public int tokenize(Counters counters) throws IOException {
+        File jack = inputs.files.get(next++ % inputs.files.size());
+        Tokenizer tokenizer = new Tokenizer(jack, lexing);
+        int tokens = 0;
+        while (tokenizer.hasMoreTokens()) {
+            tokenizer.advance();
+            tokens++;
+        }
+        tokenizer.close();
+        counters.tokens += tokens;
+        return tokens;
+    }
+}
@@ -0,0 +1,66 @@
+package cs5250_project10and11_nand2tetris.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import cs5250_project10and11_nand2tetris.*;
+
+// Writes the VM commands of one compiled file per operation through each VMWriter, so the
+// writers are compared on identical command streams without the front end. The commands are
+// recorded once as .vmb and replayed.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class VMWriterBenchmark {
+    @Param({"project11", "synthetic"})
+    public String corpus;
+
+    @Param({"print", "buffered", "binary", "asm"})
+    public String writer;
+
+    private Corpus inputs;
+    private final List<byte[]> recorded = new ArrayList<>();
+    private File output;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void load() throws IOException {
+        inputs = Corpus.load(corpus);
+        CompilerOptions options = new CompilerOptions();
+        options.binary = true;
+        for (File jack : inputs.files) {
+            File vmb = inputs.output(jack, ".vmb");
+            new CompilationEngine(jack, vmb, options);
+            recorded.add(Files.readAllBytes(vmb.toPath()));
+        }
+        output = inputs.directory.resolve("out").toFile();
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() {
+        inputs.delete();
+    }
+
+    @Benchmark
+    public void write() throws IOException {
+        byte[] commands = recorded.get(next++ % recorded.size());
+        VMWriter vmWriter = switch (writer) {
+            case "print" -> new PrintVMWriter(new PrintWriter(output));
+            case "buffered" -> new BufferedVMWriter(output);
+            case "asm" -> new AsmVMWriter(output);
+            default -> new BinaryVMWriter(output);
+        };
+        new BinaryVMReader(commands).replay(vmWriter);
+        vmWriter.close();
+    }
+}
@@ -0,0 +1,83 @@
+package cs5250_project10and11_nand2tetris;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+// Joins the assembly fragments AsmVMWriter wrote for the classes of one program into a single
+// .asm file: the bootstrap, the shared call/return routines, then every fragment in order.
+// The "// function" and "// call" comments in the fragments say what each one defines and
+// needs; a call to a function no fragment defines is an error, since the assembler would
+// otherwise turn the name into a RAM variable and the program would jump into nowhere.
+final class AsmLinker {
+    static final int ROM_SIZE = 32768;
+
+    private final Set<String> defined = new HashSet<>();
+    private final Set<String> called = new TreeSet<>();
+    private final List<File> fragments = new ArrayList<>();
+
+    void add(File fragment) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new FileReader(fragment, StandardCharsets.US_ASCII))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("// function ")) {
+                    String name = line.split(" ")[2];
+                    if (!defined.add(name)) throw new IOException("Function " + name + " is defined twice");
+                } else if (line.startsWith("// call ")) {
+                    called.add(line.split(" ")[2]);
+                }
+            }
+        }
+        fragments.add(fragment);
+    }
+
+    // Sys.init when the OS is linked in, Main.main otherwise
+    String entryPoint() {
+        if (defined.contains("Sys.init")) return "Sys.init";
+        return defined.contains("Main.main") ? "Main.main" : null;
+    }
+
+    // Writes the program and returns its size in instructions
+    int link(File output) throws IOException {
+        String entryPoint = entryPoint();
+        if (entryPoint == null) throw new IOException("No Sys.init or Main.main to start from");
+        Set<String> missing = new TreeSet<>(called);
+        missing.removeAll(defined);
+        if (!missing.isEmpty()) {
+            throw new IOException("Undefined functions " + String.join(", ", missing)
+                    + " (link the OS classes with --os DIR)");
+        }
+
+        int instructions = 0;
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(output), StandardCharsets.US_ASCII))) {
+            StringWriter header = new StringWriter();
+            AsmVMWriter.writeBootstrap(header, entryPoint);
+            AsmVMWriter.writeHelpers(header);
+            out.write(header.toString());
+            instructions += count(header.toString().split("\n"));
+            for (File fragment : fragments) {
+                try (BufferedReader reader = new BufferedReader(new FileReader(fragment, StandardCharsets.US_ASCII))) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        out.write(line);
+                        out.write('\n');
+                        if (isInstruction(line)) instructions++;
+                    }
+                }
+            }
+        }
+        return instructions;
+    }
+
+    private static int count(String[] lines) {
+        int instructions = 0;
+        for (String line : lines) {
+            if (isInstruction(line)) instructions++;
+        }
+        return instructions;
+    }
+
+    private static boolean isInstruction(String line) {
+        return !line.isEmpty() && !line.startsWith("//") && !line.startsWith("(");
+    }
+}
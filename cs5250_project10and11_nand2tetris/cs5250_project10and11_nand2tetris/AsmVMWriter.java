@@ -0,0 +1,292 @@
+package cs5250_project10and11_nand2tetris;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+// Translates VM commands straight into Hack assembly, so a build no longer writes .vm text for a
+// separate translator to parse again. Each class becomes one assembly fragment; AsmLinker joins
+// the fragments of a program with the bootstrap and the shared routines below into one .asm file.
+//
+// Calls, returns and the ordering comparisons jump to shared routines ($$CALL, $$RETURN, $$GT,
+// $$LT) instead of being expanded at every use: a call site is 12 instructions instead of about 45,
+// a return 2 instead of about 40.
+//
+// The top of the stack is cached in D. After a push or an operation the value stays in D, and it
+// is written to the stack only when the next push needs the register; pops, arithmetic and
+// if-goto take it straight from D. $$RETURN hands the return value back in D as well, so
+// "call f 0; pop temp 0" stores it without touching the stack. The cache is flushed before labels,
+// gotos and calls, so every jump target sees the whole stack in RAM.
+public class AsmVMWriter implements VMWriter {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Writer out;
+    private final String className;         // names this class's statics: ClassName.i
+    private String function = "";           // labels are scoped to the function they are in
+    private int unique;                     // numbers return and comparison labels
+    private boolean cached;                 // the stack top is in D rather than in RAM
+
+    // Writes the fragment for X.jack or X.vm to X.asm; X also names the class's statics
+    public AsmVMWriter(File outputFile) throws IOException {
+        this(new OutputStreamWriter(new FileOutputStream(outputFile), StandardCharsets.US_ASCII),
+                outputFile.getName().replaceFirst("\\.asm$", ""));
+    }
+
+    public AsmVMWriter(Writer out, String className) {
+        this.out = new BufferedWriter(out, BUFFER_SIZE);
+        this.className = className;
+    }
+
+    // Program start: set up the stack, call the entry point and stop in a loop if it returns
+    static void writeBootstrap(Writer out, String entryPoint) throws IOException {
+        lines(out, "// bootstrap",
+                "@256", "D=A", "@SP", "M=D",
+                "@" + entryPoint, "D=A", "@R13", "M=D", "@$$HALT", "D=A", "@R14", "M=D", "D=0",
+                "@$$CALL", "0;JMP",
+                "($$HALT)", "@$$HALT", "0;JMP");
+    }
+
+    // The routines every program shares. Callers pass the callee in R13, the return address in
+    // R14 and nArgs in D; the comparisons take y in R13, x on the stack and the return address in
+    // R14, and leave the result in D.
+    static void writeHelpers(Writer out) throws IOException {
+        lines(out, "// $$CALL: push the return address and the caller's frame, then jump to the callee",
+                "($$CALL)",
+                "@R15", "M=D",
+                "@R14", "D=M", "@SP", "A=M", "M=D",
+                "@LCL", "D=M", "@SP", "AM=M+1", "M=D",
+                "@ARG", "D=M", "@SP", "AM=M+1", "M=D",
+                "@THIS", "D=M", "@SP", "AM=M+1", "M=D",
+                "@THAT", "D=M", "@SP", "AM=M+1", "M=D",
+                "@SP", "MD=M+1",
+                "@LCL", "M=D",
+                "@R15", "D=D-M", "@5", "D=D-A", "@ARG", "M=D",
+                "@R13", "A=M", "0;JMP");
+        lines(out, "// $$RETURN: return value in D; restore the caller's frame, SP = ARG, and return with D",
+                "($$RETURN)",
+                "@R13", "M=D",
+                "@LCL", "D=M", "@R14", "M=D",
+                "@5", "A=D-A", "D=M", "@R15", "M=D",
+                "@ARG", "D=M", "@SP", "M=D",
+                "@R14", "AM=M-1", "D=M", "@THAT", "M=D",
+                "@R14", "AM=M-1", "D=M", "@THIS", "M=D",
+                "@R14", "AM=M-1", "D=M", "@ARG", "M=D",
+                "@R14", "AM=M-1", "D=M", "@LCL", "M=D",
+                "@R13", "D=M",
+                "@R15", "A=M", "0;JMP");
+        // x - y overflows when the signs differ, so those cases are decided by the signs alone
+        writeComparison(out, "$$GT", "JGT", "-1", "0");
+        writeComparison(out, "$$LT", "JLT", "0", "-1");
+    }
+
+    private static void writeComparison(Writer out, String name, String jump, String xNonNegative, String xNegative)
+            throws IOException {
+        lines(out, "// " + name + ": pops x, compares it with y in R13",
+                "(" + name + ")",
+                "@SP", "AM=M-1", "D=M",
+                "@" + name + ".xneg", "D;JLT",
+                "@R13", "D=M", "@" + name + ".same", "D;JGE",
+                "D=" + xNonNegative, "@R14", "A=M", "0;JMP",
+                "(" + name + ".xneg)",
+                "@R13", "D=M", "@" + name + ".same", "D;JLT",
+                "D=" + xNegative, "@R14", "A=M", "0;JMP",
+                "(" + name + ".same)",
+                "@SP", "A=M", "D=M", "@R13", "D=D-M",
+                "@" + name + ".true", "D;" + jump,
+                "D=0", "@R14", "A=M", "0;JMP",
+                "(" + name + ".true)",
+                "D=-1", "@R14", "A=M", "0;JMP");
+    }
+
+    private static void lines(Writer out, String... lines) throws IOException {
+        for (String line : lines) {
+            out.write(line);
+            out.write('\n');
+        }
+    }
+
+    private void emit(String... lines) {
+        try {
+            lines(out, lines);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Writes the cached stack top to RAM
+    private void flush() {
+        if (cached) {
+            emit("@SP", "AM=M+1", "A=A-1", "M=D");
+            cached = false;
+        }
+    }
+
+    // Brings the stack top into D
+    private void load() {
+        if (!cached) {
+            emit("@SP", "AM=M-1", "D=M");
+            cached = true;
+        }
+    }
+
+    private static String base(String segment) {
+        switch (segment) {
+            case "local": return "LCL";
+            case "argument": return "ARG";
+            case "this": return "THIS";
+            case "that": return "THAT";
+            default: return null;
+        }
+    }
+
+    // Symbol of a static, temp or pointer operand, or null for the other segments
+    private String direct(String segment, int index) {
+        switch (segment) {
+            case "static": return className + "." + index;
+            case "temp":
+                if (index < 0 || index > 7) throw new IllegalArgumentException("temp " + index + " out of range");
+                return "R" + (5 + index);
+            case "pointer":
+                if (index < 0 || index > 1) throw new IllegalArgumentException("pointer " + index + " out of range");
+                return index == 0 ? "THIS" : "THAT";
+            default: return null;
+        }
+    }
+
+    @Override
+    public void writePush(String segment, int index) {
+        flush();
+        String symbol = direct(segment, index);
+        String base = base(segment);
+        if (symbol != null) {
+            emit("@" + symbol, "D=M");
+        } else if (segment.equals("constant")) {
+            if (index == 0 || index == 1) {
+                emit("D=" + index);
+            } else {
+                emit("@" + index, "D=A");
+            }
+        } else if (base == null) {
+            throw new IllegalArgumentException("Unknown segment '" + segment + "'");
+        } else if (index <= 3) {
+            emit("@" + base, "A=M");
+            for (int i = 0; i < index; i++) emit("A=A+1");
+            emit("D=M");
+        } else {
+            emit("@" + index, "D=A", "@" + base, "A=D+M", "D=M");
+        }
+        cached = true;
+    }
+
+    @Override
+    public void writePop(String segment, int index) {
+        String symbol = direct(segment, index);
+        String base = base(segment);
+        if (symbol != null) {
+            load();
+            emit("@" + symbol, "M=D");
+        } else if (base == null) {
+            throw new IllegalArgumentException("Cannot pop to '" + segment + "'");
+        } else if (index <= 6) {
+            load();
+            emit("@" + base, "A=M");
+            for (int i = 0; i < index; i++) emit("A=A+1");
+            emit("M=D");
+        } else if (cached) {
+            emit("@R13", "M=D", "@" + index, "D=A", "@" + base, "D=D+M", "@R14", "M=D", "@R13", "D=M", "@R14", "A=M", "M=D");
+        } else {
+            emit("@" + index, "D=A", "@" + base, "D=D+M", "@R13", "M=D", "@SP", "AM=M-1", "D=M", "@R13", "A=M", "M=D");
+        }
+        cached = false;
+    }
+
+    @Override
+    public void writeArithmetic(String command) {
+        load();
+        switch (command) {
+            case "add" -> emit("@SP", "AM=M-1", "D=D+M");
+            case "sub" -> emit("@SP", "AM=M-1", "D=M-D");
+            case "and" -> emit("@SP", "AM=M-1", "D=D&M");
+            case "or" -> emit("@SP", "AM=M-1", "D=D|M");
+            case "neg" -> emit("D=-D");
+            case "not" -> emit("D=!D");
+            case "eq" -> {
+                String label = function + "$eq." + unique++;
+                emit("@SP", "AM=M-1", "D=M-D", "@" + label, "D;JEQ", "D=0", "@" + label + ".end", "0;JMP",
+                        "(" + label + ")", "D=-1", "(" + label + ".end)");
+            }
+            case "gt", "lt" -> {
+                String label = function + "$ret." + unique++;
+                emit("@R13", "M=D", "@" + label, "D=A", "@R14", "M=D",
+                        command.equals("gt") ? "@$$GT" : "@$$LT", "0;JMP", "(" + label + ")");
+            }
+            default -> throw new IllegalArgumentException("Unknown command '" + command + "'");
+        }
+    }
+
+    @Override
+    public void writeLabel(String label) {
+        flush();
+        emit("(" + function + "$" + label + ")");
+    }
+
+    @Override
+    public void writeGoto(String label) {
+        flush();
+        emit("@" + function + "$" + label, "0;JMP");
+    }
+
+    @Override
+    public void writeIf(String label) {
+        load();
+        emit("@" + function + "$" + label, "D;JNE");
+        cached = false;
+    }
+
+    // The "// call" and "// function" comments tell AsmLinker what a fragment needs and provides
+    @Override
+    public void writeCall(String name, int nArgs) {
+        flush();
+        String label = function + "$ret." + unique++;
+        emit("// call " + name + " " + nArgs,
+                "@" + name, "D=A", "@R13", "M=D", "@" + label, "D=A", "@R14", "M=D");
+        if (nArgs <= 1) {
+            emit("D=" + nArgs);
+        } else {
+            emit("@" + nArgs, "D=A");
+        }
+        emit("@$$CALL", "0;JMP", "(" + label + ")");
+        cached = true; // the return value
+    }
+
+    @Override
+    public void writeFunction(String name, int nLocals) {
+        function = name;
+        cached = false;
+        emit("// function " + name + " " + nLocals, "(" + name + ")");
+        if (nLocals == 0) return;
+        if (nLocals <= 8) {
+            emit("@SP", "A=M");
+            for (int i = 0; i < nLocals; i++) emit("M=0", "A=A+1");
+            emit("D=A", "@SP", "M=D");
+        } else {
+            emit("@" + nLocals, "D=A",
+                    "(" + name + "$$locals)", "@SP", "AM=M+1", "A=A-1", "M=0", "D=D-1", "@" + name + "$$locals", "D;JGT");
+        }
+    }
+
+    @Override
+    public void writeReturn() {
+        load();
+        emit("@$$RETURN", "0;JMP");
+        cached = false;
+    }
+
+    @Override
+    public void close() {
+        try {
+            out.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package cs5250_project10and11_nand2tetris;
+
+import java.util.List;
+
+import cs5250_project10and11_nand2tetris.Tokenizer.Keyword;
+
+// Typed syntax tree for one Jack class, built by AstParser and turned into VM code by CodeGenerator.
+// Nodes are immutable; passes that change the program build new nodes.
+public final class Ast {
+    private Ast() {
+    }
+
+    public interface Visitor<R> {
+        R visitClass(ClassDec node);
+        R visitSubroutine(SubroutineDec node);
+
+        R visitLet(Let node);
+        R visitIf(If node);
+        R visitWhile(While node);
+        R visitDo(Do node);
+        R visitReturn(Return node);
+
+        R visitIntegerConstant(IntegerConstant node);
+        R visitStringConstant(StringConstant node);
+        R visitKeywordConstant(KeywordConstant node);
+        R visitVarRef(VarRef node);
+        R visitArrayRef(ArrayRef node);
+        R visitCall(Call node);
+        R visitUnary(Unary node);
+        R visitBinary(Binary node);
+    }
+
+    public interface Node {
+        <R> R accept(Visitor<R> visitor);
+    }
+
+    public interface Statement extends Node {
+    }
+
+    public interface Expression extends Node {
+    }
+
+    // Declarations
+
+    public record ClassDec(String name, List<ClassVarDec> vars, List<SubroutineDec> subroutines) implements Node {
+        public <R> R accept(Visitor<R> visitor) { return visitor.visitClass(this); }
+    }
+
+    // static or field declaration: kind is STATIC or FIELD
+    public record ClassVarDec(SymbolTable.SymbolKind kind, String type, List<String> names) {
+    }
+
+    // kind is CONSTRUCTOR, FUNCTION or METHOD
+    public record SubroutineDec(Keyword kind, String returnType, String name, List<Parameter> parameters,
+                                List<VarDec> locals, List<Statement> body) implements Node {
+        public <R> R accept(Visitor<R> visitor) { return visitor.visitSubroutine(this); }
+    }
+
+    public record Parameter(String type, String name) {
+    }
+
+    public record VarDec(String type, List<String> names) {
+    }
+
+    // Statements
+
+    // let name = value; or let name[index] = value; (index is null for the first form)
+    public record Let(String name, Expression index, Expression value) implements Statement {
+        public <R> R accept(Visitor<R> visitor) { return visitor.visitLet(this); }
+    }
+
+    // elseBranch is null when there is no else clause
+    public record If(Expression condition, List<Statement> thenBranch, List<Statement> elseBranch) implements Statement {
+        public <R> R accept(Visitor<R> visitor) { return visitor.visitIf(this); }
+    }
+
+    public record While(Expression condition, List<Statement> body) implements Statement {
+        public <R> R accept(Visitor<R> visitor) { return visitor.visitWhile(this); }
+    }
+
+    public record Do(Call call) implements Statement {
+        public <R> R accept(Visitor<R> visitor) { return visitor.visitDo(this); }
+    }
+
+    // value is null for a bare return;
+    public record Return(Expression value) implements Statement {
+        public <R> R accept(Visitor<R> visitor) { return visitor.visitReturn(this); }
+    }
+
+    // Expressions
+
+    public record IntegerConstant(int value) implements Expression {
+        public <R> R accept(Visitor<R> visitor) { return visitor.visitIntegerConstant(this); }
+    }
+
+    public record StringConstant(String value) implements Expression {
+        public <R> R accept(Visitor<R> visitor) { return visitor.visitStringConstant(this); }
+    }
+
+    // true, false, null or this
+    public record KeywordConstant(Keyword keyword) implements Expression {
+        public <R> R accept(Visitor<R> visitor) { return visitor.visitKeywordConstant(this); }
+    }
+
+    public record VarRef(String name) implements Expression {
+        public <R> R accept(Visitor<R> visitor) { return visitor.visitVarRef(this); }
+    }
+
+    public record ArrayRef(String name, Expression index) implements Expression {
+        public <R> R accept(Visitor<R> visitor) { return visitor.visitArrayRef(this); }
+    }
+
+    // name(args), Class.name(args) or var.name(args); receiver is null for the first form
+    public record Call(String receiver, String name, List<Expression> arguments) implements Expression {
+        public <R> R accept(Visitor<R> visitor) { return visitor.visitCall(this); }
+    }
+
+    // op is '-' or '~'
+    public record Unary(char op, Expression operand) implements Expression {
+        public <R> R accept(Visitor<R> visitor) { return visitor.visitUnary(this); }
+    }
+
+    // op is one of + - * / & | < > =
+    public record Binary(Expression left, char op, Expression right) implements Expression {
+        public <R> R accept(Visitor<R> visitor) { return visitor.visitBinary(this); }
+    }
+}
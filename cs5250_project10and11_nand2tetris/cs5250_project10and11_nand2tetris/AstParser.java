@@ -0,0 +1,285 @@
+package cs5250_project10and11_nand2tetris;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import cs5250_project10and11_nand2tetris.Ast.*;
+import cs5250_project10and11_nand2tetris.Tokenizer.Keyword;
+import cs5250_project10and11_nand2tetris.Tokenizer.TokenType;
+
+// Builds an Ast.ClassDec from the tokens of one class. Follows the same grammar walk as
+// CompilationEngine, but records nodes instead of emitting VM code.
+public class AstParser {
+    private final Tokenizer tokenizer;
+
+    // The tokenizer must already be positioned on the first token
+    public AstParser(Tokenizer tokenizer) {
+        this.tokenizer = tokenizer;
+    }
+
+    public ClassDec parseClass() {
+        tokenizer.advance(); // 'class'
+        String name = tokenizer.identifier();
+        tokenizer.advance(); // className
+        tokenizer.advance(); // '{'
+
+        List<ClassVarDec> vars = new ArrayList<>();
+        while (tokenizer.keywordIs(Keyword.STATIC) || tokenizer.keywordIs(Keyword.FIELD)) {
+            vars.add(parseClassVarDec());
+        }
+
+        List<SubroutineDec> subroutines = new ArrayList<>();
+        while (tokenizer.keywordIs(Keyword.CONSTRUCTOR) ||
+               tokenizer.keywordIs(Keyword.FUNCTION) ||
+               tokenizer.keywordIs(Keyword.METHOD)) {
+            subroutines.add(parseSubroutine());
+        }
+
+        tokenizer.advance(); // '}'
+        return new ClassDec(name, vars, subroutines);
+    }
+
+    private ClassVarDec parseClassVarDec() {
+        SymbolTable.SymbolKind kind = tokenizer.keyWord() == Keyword.STATIC
+                ? SymbolTable.SymbolKind.STATIC
+                : SymbolTable.SymbolKind.FIELD;
+        tokenizer.advance(); // 'static' or 'field'
+        String type = typeName();
+        tokenizer.advance();
+        List<String> names = parseNames();
+        tokenizer.advance(); // ';'
+        return new ClassVarDec(kind, type, names);
+    }
+
+    // varName (',' varName)*
+    private List<String> parseNames() {
+        List<String> names = new ArrayList<>(2);
+        names.add(tokenizer.identifier());
+        tokenizer.advance();
+        while (tokenizer.symbolIs(',')) {
+            tokenizer.advance(); // ','
+            names.add(tokenizer.identifier());
+            tokenizer.advance();
+        }
+        return names;
+    }
+
+    private SubroutineDec parseSubroutine() {
+        Keyword kind = tokenizer.keyWord();
+        tokenizer.advance(); // constructor/function/method
+        String returnType = typeName();
+        tokenizer.advance(); // return type
+        String name = tokenizer.identifier();
+        tokenizer.advance(); // subroutine name
+        tokenizer.advance(); // '('
+
+        List<Parameter> parameters = new ArrayList<>();
+        if (!tokenizer.symbolIs(')')) {
+            parameters.add(parseParameter());
+            while (tokenizer.symbolIs(',')) {
+                tokenizer.advance(); // ','
+                parameters.add(parseParameter());
+            }
+        }
+        tokenizer.advance(); // ')'
+
+        tokenizer.advance(); // '{'
+        List<VarDec> locals = new ArrayList<>();
+        while (tokenizer.keywordIs(Keyword.VAR)) {
+            tokenizer.advance(); // 'var'
+            String type = typeName();
+            tokenizer.advance();
+            locals.add(new VarDec(type, parseNames()));
+            tokenizer.advance(); // ';'
+        }
+        List<Statement> body = parseStatements();
+        tokenizer.advance(); // '}'
+        return new SubroutineDec(kind, returnType, name, parameters, locals, body);
+    }
+
+    private Parameter parseParameter() {
+        String type = typeName();
+        tokenizer.advance();
+        String name = tokenizer.identifier();
+        tokenizer.advance();
+        return new Parameter(type, name);
+    }
+
+    // Type names are either a class name or one of the int/char/boolean/void keywords
+    private String typeName() {
+        return tokenizer.tokenType() == TokenType.KEYWORD ? tokenizer.keyWord().text() : tokenizer.identifier();
+    }
+
+    private List<Statement> parseStatements() {
+        List<Statement> statements = new ArrayList<>();
+        while (tokenizer.tokenType() == TokenType.KEYWORD) {
+            switch (tokenizer.keyWord()) {
+                case LET -> statements.add(parseLet());
+                case IF -> statements.add(parseIf());
+                case WHILE -> statements.add(parseWhile());
+                case DO -> statements.add(parseDo());
+                case RETURN -> statements.add(parseReturn());
+                default -> {
+                    return statements;
+                }
+            }
+        }
+        return statements;
+    }
+
+    private Let parseLet() {
+        tokenizer.advance(); // 'let'
+        String name = tokenizer.identifier();
+        tokenizer.advance(); // varName
+
+        Expression index = null;
+        if (tokenizer.symbolIs('[')) {
+            tokenizer.advance(); // '['
+            index = parseExpression();
+            tokenizer.advance(); // ']'
+        }
+
+        tokenizer.advance(); // '='
+        Expression value = parseExpression();
+        tokenizer.advance(); // ';'
+        return new Let(name, index, value);
+    }
+
+    private If parseIf() {
+        tokenizer.advance(); // 'if'
+        tokenizer.advance(); // '('
+        Expression condition = parseExpression();
+        tokenizer.advance(); // ')'
+
+        tokenizer.advance(); // '{'
+        List<Statement> thenBranch = parseStatements();
+        tokenizer.advance(); // '}'
+
+        List<Statement> elseBranch = null;
+        if (tokenizer.keywordIs(Keyword.ELSE)) {
+            tokenizer.advance(); // 'else'
+            tokenizer.advance(); // '{'
+            elseBranch = parseStatements();
+            tokenizer.advance(); // '}'
+        }
+        return new If(condition, thenBranch, elseBranch);
+    }
+
+    private While parseWhile() {
+        tokenizer.advance(); // 'while'
+        tokenizer.advance(); // '('
+        Expression condition = parseExpression();
+        tokenizer.advance(); // ')'
+
+        tokenizer.advance(); // '{'
+        List<Statement> body = parseStatements();
+        tokenizer.advance(); // '}'
+        return new While(condition, body);
+    }
+
+    private Do parseDo() {
+        tokenizer.advance(); // 'do'
+        String name = tokenizer.identifier();
+        tokenizer.advance();
+        Call call = parseCall(name);
+        tokenizer.advance(); // ';'
+        return new Do(call);
+    }
+
+    // The rest of foo(...), Class.foo(...) or var.foo(...) after the first identifier
+    private Call parseCall(String name) {
+        String receiver = null;
+        if (tokenizer.symbolIs('.')) {
+            tokenizer.advance(); // '.'
+            receiver = name;
+            name = tokenizer.identifier();
+            tokenizer.advance();
+        }
+
+        tokenizer.advance(); // '('
+        List<Expression> arguments = new ArrayList<>();
+        if (!tokenizer.symbolIs(')')) {
+            arguments.add(parseExpression());
+            while (tokenizer.symbolIs(',')) {
+                tokenizer.advance(); // ','
+                arguments.add(parseExpression());
+            }
+        }
+        tokenizer.advance(); // ')'
+        return new Call(receiver, name, arguments);
+    }
+
+    private Return parseReturn() {
+        tokenizer.advance(); // 'return'
+        Expression value = tokenizer.symbolIs(';') ? null : parseExpression();
+        tokenizer.advance(); // ';'
+        return new Return(value);
+    }
+
+    // Binary operators have no precedence in Jack and group to the left
+    private Expression parseExpression() {
+        Expression expression = parseTerm();
+        while (tokenizer.tokenType() == TokenType.SYMBOL && isOp(tokenizer.symbol())) {
+            char op = tokenizer.symbol();
+            tokenizer.advance();
+            expression = new Binary(expression, op, parseTerm());
+        }
+        return expression;
+    }
+
+    private static boolean isOp(char c) {
+        return switch (c) {
+            case '+', '-', '*', '/', '&', '|', '<', '>', '=', '~' -> true;
+            default -> false;
+        };
+    }
+
+    private Expression parseTerm() {
+        switch (tokenizer.tokenType()) {
+            case INT_CONST -> {
+                int value = tokenizer.intVal();
+                tokenizer.advance();
+                return new IntegerConstant(value);
+            }
+            case STRING_CONST -> {
+                String value = tokenizer.stringVal();
+                tokenizer.advance();
+                return new StringConstant(value);
+            }
+            case KEYWORD -> {
+                Keyword keyword = tokenizer.keyWord();
+                tokenizer.advance();
+                return new KeywordConstant(keyword);
+            }
+            case IDENTIFIER -> {
+                String name = tokenizer.identifier();
+                tokenizer.advance();
+
+                if (tokenizer.symbolIs('[')) {
+                    tokenizer.advance(); // '['
+                    Expression index = parseExpression();
+                    tokenizer.advance(); // ']'
+                    return new ArrayRef(name, index);
+                } else if (tokenizer.symbolIs('(') || tokenizer.symbolIs('.')) {
+                    return parseCall(name);
+                }
+                return new VarRef(name);
+            }
+            case SYMBOL -> {
+                if (tokenizer.symbolIs('(')) {
+                    tokenizer.advance(); // '('
+                    Expression inner = parseExpression();
+                    tokenizer.advance(); // ')'
+                    return inner;
+                } else if (tokenizer.symbolIs('-') || tokenizer.symbolIs('~')) {
+                    char op = tokenizer.symbol();
+                    tokenizer.advance();
+                    return new Unary(op, parseTerm());
+                }
+            }
+            default -> { }
+        }
+        throw new IllegalStateException("Unexpected token in expression at line "
+                + tokenizer.lineNumber() + ": " + tokenizer.getCurrentToken());
+    }
+}
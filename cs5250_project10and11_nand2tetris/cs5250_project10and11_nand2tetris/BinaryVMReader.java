@@ -0,0 +1,111 @@
+package cs5250_project10and11_nand2tetris;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static cs5250_project10and11_nand2tetris.BinaryVMWriter.*;
+
+// Decodes a .vmb file (see BinaryVMWriter) and replays its commands into any VMWriter,
+// e.g. a PrintVMWriter to turn it back into text for debugging.
+public class BinaryVMReader {
+    private final byte[] data;
+    private int pos;
+    private final List<String> names = new ArrayList<>();
+
+    public BinaryVMReader(byte[] data) {
+        this.data = data;
+    }
+
+    public BinaryVMReader(File file) throws IOException {
+        this(Files.readAllBytes(file.toPath()));
+    }
+
+    // True when the file starts with the .vmb magic bytes
+    public static boolean isBinary(File file) throws IOException {
+        try (InputStream in = new FileInputStream(file)) {
+            byte[] head = in.readNBytes(MAGIC.length);
+            return Arrays.equals(head, MAGIC);
+        }
+    }
+
+    // Writes every command to the given writer; the writer is not closed
+    public void replay(VMWriter writer) throws IOException {
+        pos = 0;
+        names.clear();
+        for (byte b : MAGIC) {
+            if (pos >= data.length || data[pos++] != b) throw new IOException("Not a .vmb file");
+        }
+        int version = readByte();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported .vmb version " + version);
+        }
+        while (pos < data.length) {
+            int opcode = readByte();
+            switch (opcode) {
+                case PUSH -> writer.writePush(readSegment(), readVarint());
+                case POP -> writer.writePop(readSegment(), readVarint());
+                case LABEL -> writer.writeLabel(readName());
+                case GOTO -> writer.writeGoto(readName());
+                case IF_GOTO -> writer.writeIf(readName());
+                case CALL -> writer.writeCall(readName(), readVarint());
+                case FUNCTION -> writer.writeFunction(readName(), readVarint());
+                case RETURN -> writer.writeReturn();
+                default -> {
+                    if (opcode < ARITHMETIC || opcode >= ARITHMETIC + COMMANDS.length) {
+                        throw new IOException("Bad opcode " + opcode + " at byte " + (pos - 1));
+                    }
+                    writer.writeArithmetic(COMMANDS[opcode - ARITHMETIC]);
+                }
+            }
+        }
+    }
+
+    // Converts a .vmb file into its text form
+    public static void toText(File vmb, File vm) throws IOException {
+        VMWriter writer = new BufferedVMWriter(vm);
+        try {
+            new BinaryVMReader(vmb).replay(writer);
+        } finally {
+            writer.close();
+        }
+    }
+
+    private String readSegment() throws IOException {
+        int code = readByte();
+        if (code >= SEGMENTS.length) throw new IOException("Bad segment " + code + " at byte " + (pos - 1));
+        return SEGMENTS[code];
+    }
+
+    private String readName() throws IOException {
+        int id = readVarint();
+        if (id < names.size()) {
+            return names.get(id);
+        }
+        if (id != names.size()) throw new IOException("Bad name id " + id + " at byte " + pos);
+        int length = readVarint();
+        if (length < 0 || length > data.length - pos) throw new IOException("Truncated .vmb file");
+        String name = new String(data, pos, length, StandardCharsets.UTF_8);
+        pos += length;
+        names.add(name);
+        return name;
+    }
+
+    private int readVarint() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = readByte();
+            value |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Bad varint at byte " + pos);
+    }
+
+    private int readByte() throws IOException {
+        if (pos >= data.length) throw new IOException("Truncated .vmb file");
+        return data[pos++] & 0xff;
+    }
+}
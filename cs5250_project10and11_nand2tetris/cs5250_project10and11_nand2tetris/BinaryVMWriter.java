@@ -0,0 +1,145 @@
+package cs5250_project10and11_nand2tetris;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+// VMWriter for the compact .vmb format. The file starts with the bytes "JVMB" and a format
+// version, followed by one record per command:
+//
+//   push / pop     opcode, segment byte, varint index
+//   arithmetic     opcode only
+//   label / goto / if-goto    opcode, name
+//   call / function           opcode, name, varint count
+//   return         opcode only
+//
+// Varints are unsigned LEB128. A name is a varint id into a string table built as the file
+// is written: an id equal to the number of names seen so far introduces a new name and is
+// followed by its varint byte length and UTF-8 bytes; smaller ids refer back to earlier ones.
+// BinaryVMReader decodes the format again.
+public class BinaryVMWriter implements VMWriter {
+    static final byte[] MAGIC = {'J', 'V', 'M', 'B'};
+    static final int FORMAT_VERSION = 1;
+
+    static final int PUSH = 0, POP = 1, LABEL = 2, GOTO = 3, IF_GOTO = 4, CALL = 5, FUNCTION = 6, RETURN = 7;
+    static final int ARITHMETIC = 8; // add..not are ARITHMETIC + their index in COMMANDS
+
+    static final String[] COMMANDS = {"add", "sub", "neg", "eq", "gt", "lt", "and", "or", "not"};
+    static final String[] SEGMENTS = {"constant", "argument", "local", "static", "this", "that", "pointer", "temp"};
+
+    private final OutputStream out;
+    private final Map<String, Integer> names = new HashMap<>();
+
+    public BinaryVMWriter(File outputFile) throws IOException {
+        this(new FileOutputStream(outputFile));
+    }
+
+    public BinaryVMWriter(OutputStream stream) throws IOException {
+        this.out = new BufferedOutputStream(stream, 64 * 1024);
+        out.write(MAGIC);
+        out.write(FORMAT_VERSION);
+    }
+
+    public void writePush(String segment, int index) {
+        writeByte(PUSH);
+        writeByte(segmentCode(segment));
+        writeVarint(index);
+    }
+
+    public void writePop(String segment, int index) {
+        writeByte(POP);
+        writeByte(segmentCode(segment));
+        writeVarint(index);
+    }
+
+    public void writeArithmetic(String command) {
+        for (int i = 0; i < COMMANDS.length; i++) {
+            if (COMMANDS[i].equals(command)) {
+                writeByte(ARITHMETIC + i);
+                return;
+            }
+        }
+        throw new IllegalArgumentException("Unknown VM command: " + command);
+    }
+
+    public void writeLabel(String label) {
+        writeByte(LABEL);
+        writeName(label);
+    }
+
+    public void writeGoto(String label) {
+        writeByte(GOTO);
+        writeName(label);
+    }
+
+    public void writeIf(String label) {
+        writeByte(IF_GOTO);
+        writeName(label);
+    }
+
+    public void writeCall(String name, int nArgs) {
+        writeByte(CALL);
+        writeName(name);
+        writeVarint(nArgs);
+    }
+
+    public void writeFunction(String name, int nLocals) {
+        writeByte(FUNCTION);
+        writeName(name);
+        writeVarint(nLocals);
+    }
+
+    public void writeReturn() {
+        writeByte(RETURN);
+    }
+
+    public void close() {
+        try {
+            out.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static int segmentCode(String segment) {
+        for (int i = 0; i < SEGMENTS.length; i++) {
+            if (SEGMENTS[i].equals(segment)) return i;
+        }
+        throw new IllegalArgumentException("Unknown VM segment: " + segment);
+    }
+
+    private void writeName(String name) {
+        Integer id = names.get(name);
+        if (id != null) {
+            writeVarint(id);
+            return;
+        }
+        writeVarint(names.size());
+        names.put(name, names.size());
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        writeVarint(bytes.length);
+        try {
+            out.write(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+
+    private void writeVarint(int value) {
+        while ((value & ~0x7f) != 0) {
+            writeByte((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        writeByte(value);
+    }
+
+    private void writeByte(int b) {
+        try {
+            out.write(b);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
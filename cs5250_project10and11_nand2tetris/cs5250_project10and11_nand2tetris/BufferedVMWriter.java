@@ -0,0 +1,247 @@
+package cs5250_project10and11_nand2tetris;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+// VMWriter that encodes each command directly into a reusable byte buffer and writes it
+// to the file through a FileChannel in large chunks. Opcodes, segments and arithmetic
+// commands are pre-encoded, and numbers are formatted by hand, so emitting an instruction
+// allocates nothing. The output is byte for byte what PrintVMWriter produces.
+public class BufferedVMWriter implements VMWriter {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final byte[] PUSH = ascii("push ");
+    private static final byte[] POP = ascii("pop ");
+    private static final byte[] LABEL = ascii("label ");
+    private static final byte[] GOTO = ascii("goto ");
+    private static final byte[] IF_GOTO = ascii("if-goto ");
+    private static final byte[] CALL = ascii("call ");
+    private static final byte[] FUNCTION = ascii("function ");
+    private static final byte[] RETURN = ascii("return");
+    private static final byte[] NEWLINE = ascii(System.lineSeparator());
+
+    // Segment names with their trailing space
+    private static final byte[] CONSTANT = ascii("constant ");
+    private static final byte[] ARGUMENT = ascii("argument ");
+    private static final byte[] LOCAL = ascii("local ");
+    private static final byte[] STATIC = ascii("static ");
+    private static final byte[] THIS = ascii("this ");
+    private static final byte[] THAT = ascii("that ");
+    private static final byte[] POINTER = ascii("pointer ");
+    private static final byte[] TEMP = ascii("temp ");
+
+    private static final byte[] ADD = ascii("add");
+    private static final byte[] SUB = ascii("sub");
+    private static final byte[] NEG = ascii("neg");
+    private static final byte[] EQ = ascii("eq");
+    private static final byte[] GT = ascii("gt");
+    private static final byte[] LT = ascii("lt");
+    private static final byte[] AND = ascii("and");
+    private static final byte[] OR = ascii("or");
+    private static final byte[] NOT = ascii("not");
+
+    // PrintWriter(File) encodes with the default charset; names outside ASCII must match it
+    private static final Charset CHARSET = Charset.defaultCharset();
+
+    private final FileChannel channel;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private final ByteBuffer view = ByteBuffer.wrap(buffer);
+    private int position;
+
+    public BufferedVMWriter(File outputFile) throws IOException {
+        this.channel = FileChannel.open(outputFile.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    public void writePush(String segment, int index) {
+        put(PUSH);
+        put(segment(segment));
+        putInt(index);
+        put(NEWLINE);
+    }
+
+    public void writePop(String segment, int index) {
+        put(POP);
+        put(segment(segment));
+        putInt(index);
+        put(NEWLINE);
+    }
+
+    public void writeArithmetic(String command) {
+        byte[] encoded = arithmetic(command);
+        if (encoded != null) {
+            put(encoded);
+        } else {
+            putName(command);
+        }
+        put(NEWLINE);
+    }
+
+    public void writeLabel(String label) {
+        put(LABEL);
+        putName(label);
+        put(NEWLINE);
+    }
+
+    public void writeGoto(String label) {
+        put(GOTO);
+        putName(label);
+        put(NEWLINE);
+    }
+
+    public void writeIf(String label) {
+        put(IF_GOTO);
+        putName(label);
+        put(NEWLINE);
+    }
+
+    public void writeCall(String name, int nArgs) {
+        put(CALL);
+        putName(name);
+        putByte((byte) ' ');
+        putInt(nArgs);
+        put(NEWLINE);
+    }
+
+    public void writeFunction(String name, int nLocals) {
+        put(FUNCTION);
+        putName(name);
+        putByte((byte) ' ');
+        putInt(nLocals);
+        put(NEWLINE);
+    }
+
+    public void writeReturn() {
+        put(RETURN);
+        put(NEWLINE);
+    }
+
+    public void close() {
+        try {
+            drain();
+        } finally {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private static byte[] segment(String segment) {
+        switch (segment) {
+            case "constant": return CONSTANT;
+            case "argument": return ARGUMENT;
+            case "local": return LOCAL;
+            case "static": return STATIC;
+            case "this": return THIS;
+            case "that": return THAT;
+            case "pointer": return POINTER;
+            case "temp": return TEMP;
+            default: return (segment + " ").getBytes(CHARSET);
+        }
+    }
+
+    private static byte[] arithmetic(String command) {
+        switch (command) {
+            case "add": return ADD;
+            case "sub": return SUB;
+            case "neg": return NEG;
+            case "eq": return EQ;
+            case "gt": return GT;
+            case "lt": return LT;
+            case "and": return AND;
+            case "or": return OR;
+            case "not": return NOT;
+            default: return null;
+        }
+    }
+
+    // Class, subroutine and label names are ASCII in practice; copy their chars directly
+    private void putName(String name) {
+        int length = name.length();
+        if (BUFFER_SIZE - position < length) {
+            drain();
+            if (length > BUFFER_SIZE) {
+                put(name.getBytes(CHARSET));
+                return;
+            }
+        }
+        int start = position;
+        for (int i = 0; i < length; i++) {
+            char c = name.charAt(i);
+            if (c >= 0x80) {
+                position = start;
+                put(name.getBytes(CHARSET));
+                return;
+            }
+            buffer[position++] = (byte) c;
+        }
+    }
+
+    // Decimal formatting without going through String
+    private void putInt(int value) {
+        if (BUFFER_SIZE - position < 11) drain();
+        if (value < 0) {
+            if (value == Integer.MIN_VALUE) {
+                put(ascii(Integer.toString(value)));
+                return;
+            }
+            buffer[position++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (int rest = value / 10; rest != 0; rest /= 10) {
+            digits++;
+        }
+        int end = position + digits;
+        for (int i = end - 1; i >= position; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        position = end;
+    }
+
+    private void putByte(byte b) {
+        if (position == BUFFER_SIZE) drain();
+        buffer[position++] = b;
+    }
+
+    private void put(byte[] bytes) {
+        if (BUFFER_SIZE - position < bytes.length) {
+            drain();
+            if (bytes.length > BUFFER_SIZE) {
+                write(ByteBuffer.wrap(bytes));
+                return;
+            }
+        }
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+
+    private void drain() {
+        view.clear().limit(position);
+        write(view);
+        position = 0;
+    }
+
+    private void write(ByteBuffer bytes) {
+        try {
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,86 @@
+package cs5250_project10and11_nand2tetris;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Properties;
+
+// Per-directory record of what the last build produced, used by incremental builds.
+// Stored as .jackc-manifest next to the outputs: the compiler version and option fingerprint
+// the directory was built with, plus a SHA-256 of every source and every output file.
+public class BuildManifest {
+    public static final String FILE_NAME = ".jackc-manifest";
+
+    private final File file;
+    private final Properties entries = new Properties();
+    private boolean dirty;
+
+    private BuildManifest(File file) {
+        this.file = file;
+    }
+
+    // Loads the manifest of a directory. Entries recorded by another compiler version or
+    // with different output-affecting options are discarded, so everything rebuilds.
+    public static BuildManifest load(File directory, String fingerprint) {
+        BuildManifest manifest = new BuildManifest(new File(directory, FILE_NAME));
+        if (manifest.file.isFile()) {
+            try (Reader reader = new FileReader(manifest.file)) {
+                manifest.entries.load(reader);
+            } catch (IOException e) {
+                manifest.entries.clear(); // unreadable manifest: rebuild everything
+            }
+        }
+        if (!fingerprint.equals(manifest.entries.getProperty("fingerprint"))) {
+            manifest.entries.clear();
+            manifest.entries.setProperty("fingerprint", fingerprint);
+            manifest.dirty = true;
+        }
+        return manifest;
+    }
+
+    // True when the source still hashes to the recorded value and every output exists with its recorded hash
+    public boolean isUpToDate(File source, String sourceHash, File... outputs) throws IOException {
+        if (!sourceHash.equals(entries.getProperty(source.getName()))) {
+            return false;
+        }
+        for (File output : outputs) {
+            String recorded = entries.getProperty(output.getName());
+            if (recorded == null || !output.isFile() || !recorded.equals(hash(output))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void record(File file, String hash) {
+        if (!hash.equals(entries.put(file.getName(), hash))) {
+            dirty = true;
+        }
+    }
+
+    public void save() throws IOException {
+        if (!dirty) return;
+        try (Writer writer = new FileWriter(file)) {
+            entries.store(writer, "Jack compiler incremental build manifest");
+        }
+        dirty = false;
+    }
+
+    public static String hash(File file) throws IOException {
+        return hash(Files.readAllBytes(file.toPath()));
+    }
+
+    public static String hash(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is always available", e);
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package cs5250_project10and11_nand2tetris;
+
+import java.util.*;
+
+import cs5250_project10and11_nand2tetris.Ast.*;
+import cs5250_project10and11_nand2tetris.Tokenizer.Keyword;
+
+// Whole-program view of the classes in one directory: which subroutine calls which, and
+// which of them can run at all. Jack has no inheritance, so every call names its target
+// exactly once the receiver's declared type is known.
+//
+// Entry points are Sys.init when the program brings its own Sys class (the VM bootstrap calls
+// it), otherwise Main.main. Code generation also calls OS subroutines behind the scenes:
+// Memory.alloc in constructors, String.new/appendChar for literals and Math.multiply/divide
+// for * and /. Those count as calls too, in case the directory contains its own OS classes.
+//
+// A directory can also replace single OS classes, which the rest of the built-in OS then calls
+// without any call showing up in the program: the built-in Sys.init runs every init function,
+// and the OS uses its own String, Memory, Math, Output and Keyboard subroutines internally.
+// Those subroutines are always roots when the directory defines them.
+public class CallGraph {
+    private static final List<String> OS_CLASSES =
+            List.of("Math", "Memory", "Output", "Screen", "Keyboard", "String", "Array", "Sys");
+    private static final List<String> OS_INTERNAL_CALLS = List.of(
+            "Sys.halt", "Sys.error",
+            "Memory.alloc", "Memory.deAlloc", "Array.new", "Array.dispose",
+            "Math.multiply", "Math.divide", "Math.abs", "Math.min", "Math.max", "Math.sqrt",
+            "String.new", "String.dispose", "String.length", "String.charAt", "String.appendChar",
+            "String.eraseLastChar", "String.intValue", "String.setInt", "String.newLine", "String.backSpace",
+            "Output.printChar", "Output.printString", "Output.printInt", "Output.println", "Output.backSpace",
+            "Keyboard.keyPressed", "Keyboard.readChar", "Keyboard.readLine");
+
+    private final Map<String, ClassDec> classes = new LinkedHashMap<>();
+    private final Map<String, Set<String>> calls = new HashMap<>(); // "Class.sub" -> callees
+
+    public CallGraph(Collection<ClassDec> program) {
+        for (ClassDec tree : program) {
+            classes.put(tree.name(), tree);
+        }
+        for (ClassDec tree : program) {
+            for (SubroutineDec subroutine : tree.subroutines()) {
+                calls.put(tree.name() + "." + subroutine.name(), new Collector(tree, subroutine).callees);
+            }
+        }
+    }
+
+    // The program's entry point, or null when it has neither Sys.init nor Main.main
+    public String entryPoint() {
+        if (calls.containsKey("Sys.init")) return "Sys.init";
+        if (calls.containsKey("Main.main")) return "Main.main";
+        return null;
+    }
+
+    // Subroutines of these classes reachable from the entry point or from the built-in OS
+    public Set<String> reachable() {
+        Set<String> seen = new HashSet<>();
+        Deque<String> pending = new ArrayDeque<>();
+        String entry = entryPoint();
+        if (entry != null) pending.add(entry);
+        for (String osClass : OS_CLASSES) {
+            if (classes.containsKey(osClass)) pending.add(osClass + ".init");
+        }
+        pending.addAll(OS_INTERNAL_CALLS); // only followed when the directory defines them
+        while (!pending.isEmpty()) {
+            String name = pending.pop();
+            Set<String> callees = calls.get(name);
+            if (callees == null || !seen.add(name)) continue; // OS subroutine or already visited
+            pending.addAll(callees);
+        }
+        return seen;
+    }
+
+    // The class without the subroutines that are not in live
+    public static ClassDec prune(ClassDec tree, Set<String> live) {
+        List<SubroutineDec> kept = new ArrayList<>();
+        for (SubroutineDec subroutine : tree.subroutines()) {
+            if (live.contains(tree.name() + "." + subroutine.name())) kept.add(subroutine);
+        }
+        return new ClassDec(tree.name(), tree.vars(), kept);
+    }
+
+    // VM commands plain code generation emits for the given subroutines of a class,
+    // used to report how much code was dropped
+    public static int commandCount(ClassDec tree, Collection<SubroutineDec> subroutines) {
+        int[] count = {0};
+        VMWriter counter = new VMWriter() {
+            public void writePush(String segment, int index) { count[0]++; }
+            public void writePop(String segment, int index) { count[0]++; }
+            public void writeArithmetic(String command) { count[0]++; }
+            public void writeLabel(String label) { count[0]++; }
+            public void writeGoto(String label) { count[0]++; }
+            public void writeIf(String label) { count[0]++; }
+            public void writeCall(String name, int nArgs) { count[0]++; }
+            public void writeFunction(String name, int nLocals) { count[0]++; }
+            public void writeReturn() { count[0]++; }
+            public void close() { }
+        };
+        new ClassDec(tree.name(), tree.vars(), new ArrayList<>(subroutines)).accept(new CodeGenerator(counter, null));
+        return count[0];
+    }
+
+    // Collects the callees of one subroutine, resolving var.method() through declared types
+    private static class Collector implements Ast.Visitor<Void> {
+        final Set<String> callees = new LinkedHashSet<>();
+        private final String className;
+        private final Map<String, String> types = new HashMap<>();
+
+        Collector(ClassDec owner, SubroutineDec subroutine) {
+            className = owner.name();
+            for (ClassVarDec dec : owner.vars()) {
+                for (String name : dec.names()) types.put(name, dec.type());
+            }
+            for (Parameter parameter : subroutine.parameters()) {
+                types.put(parameter.name(), parameter.type());
+            }
+            for (VarDec dec : subroutine.locals()) {
+                for (String name : dec.names()) types.put(name, dec.type());
+            }
+            subroutine.accept(this);
+        }
+
+        public Void visitClass(ClassDec node) {
+            return null;
+        }
+
+        public Void visitSubroutine(SubroutineDec node) {
+            if (node.kind() == Keyword.CONSTRUCTOR) callees.add("Memory.alloc");
+            statements(node.body());
+            return null;
+        }
+
+        private void statements(List<Statement> statements) {
+            if (statements == null) return;
+            for (Statement statement : statements) statement.accept(this);
+        }
+
+        private void expression(Expression expression) {
+            if (expression != null) expression.accept(this);
+        }
+
+        public Void visitLet(Let node) {
+            expression(node.index());
+            expression(node.value());
+            return null;
+        }
+
+        public Void visitIf(If node) {
+            expression(node.condition());
+            statements(node.thenBranch());
+            statements(node.elseBranch());
+            return null;
+        }
+
+        public Void visitWhile(While node) {
+            expression(node.condition());
+            statements(node.body());
+            return null;
+        }
+
+        public Void visitDo(Do node) {
+            return node.call().accept(this);
+        }
+
+        public Void visitReturn(Return node) {
+            expression(node.value());
+            return null;
+        }
+
+        public Void visitIntegerConstant(IntegerConstant node) {
+            return null;
+        }
+
+        public Void visitStringConstant(StringConstant node) {
+            callees.add("String.new");
+            callees.add("String.appendChar");
+            return null;
+        }
+
+        public Void visitKeywordConstant(KeywordConstant node) {
+            return null;
+        }
+
+        public Void visitVarRef(VarRef node) {
+            return null;
+        }
+
+        public Void visitArrayRef(ArrayRef node) {
+            return node.index().accept(this);
+        }
+
+        public Void visitCall(Call node) {
+            if (node.receiver() == null) {
+                callees.add(className + "." + node.name());
+            } else {
+                callees.add(types.getOrDefault(node.receiver(), node.receiver()) + "." + node.name());
+            }
+            for (Expression argument : node.arguments()) argument.accept(this);
+            return null;
+        }
+
+        public Void visitUnary(Unary node) {
+            return node.operand().accept(this);
+        }
+
+        public Void visitBinary(Binary node) {
+            if (node.op() == '*') callees.add("Math.multiply");
+            if (node.op() == '/') callees.add("Math.divide");
+            node.left().accept(this);
+            return node.right().accept(this);
+        }
+    }
+}
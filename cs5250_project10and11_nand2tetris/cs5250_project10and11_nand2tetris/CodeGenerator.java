@@ -0,0 +1,470 @@
+package cs5250_project10and11_nand2tetris;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import cs5250_project10and11_nand2tetris.Ast.*;
+import cs5250_project10and11_nand2tetris.Tokenizer.Keyword;
+
+// Second pass of the AST pipeline: walks an Ast.ClassDec and writes VM code.
+// Emits exactly what the single-pass CompilationEngine emits for the same class,
+// including the class-wide IF_*/WHILE_* label numbering.
+//
+// With a multiply limit, x * c for a constant c is lowered to adds and doublings instead of a
+// call to Math.multiply, whose loop costs hundreds of VM commands. temp 1 holds x when it is
+// not a plain variable and temp 2 the running sum; both are only live inside one such sequence.
+//
+// With string pooling, each distinct literal of the class gets a static slot after the declared
+// statics and a getter function Class.string$K that builds the string on first use and returns
+// the cached object afterwards. Every use is then a single call. All uses share one object, so
+// this is only safe for programs that do not modify or dispose their literals.
+//
+// With an Inliner, calls to small getters, setters and pure functions anywhere in the directory
+// are expanded in place (see Inliner). A field of another object is reached through pointer 1,
+// which like temp 1/2 never stays live across the evaluation of a subexpression.
+public class CodeGenerator implements Ast.Visitor<Void> {
+    private final VMWriter vmWriter;
+    private final SymbolTable symbolTable = new SymbolTable();
+    private final StringBuilder log;
+    private final int multiplyLimit; // max commands for a lowered multiply; 0 always calls Math.multiply
+    private final boolean poolStrings;
+    private final Map<String, Integer> stringPool = new LinkedHashMap<>(); // literal -> getter number
+    private final Inliner inliner; // null when inlining is off
+    private int inlined = 0;
+    private String className;
+    private Keyword subroutineType;
+    private int labelCounter = 0;
+
+    // log receives progress messages; null disables them
+    public CodeGenerator(VMWriter vmWriter, StringBuilder log) {
+        this(vmWriter, log, new CompilerOptions(), null);
+    }
+
+    public CodeGenerator(VMWriter vmWriter, StringBuilder log, CompilerOptions options, Inliner inliner) {
+        this.vmWriter = vmWriter;
+        this.log = log;
+        this.multiplyLimit = options.multiplyLimit;
+        this.poolStrings = options.poolStrings;
+        this.inliner = inliner;
+    }
+
+    @Override
+    public Void visitClass(ClassDec node) {
+        className = node.name();
+        symbolTable.startClass();
+        for (ClassVarDec dec : node.vars()) {
+            for (String name : dec.names()) {
+                symbolTable.define(name, dec.type(), dec.kind());
+            }
+        }
+        for (SubroutineDec subroutine : node.subroutines()) {
+            subroutine.accept(this);
+        }
+        writeStringGetters();
+        if (log != null && inlined > 0) {
+            log.append("Inlined ").append(inlined).append(" call(s) in ").append(className).append('\n');
+        }
+        return null;
+    }
+
+    private void writeStringGetters() {
+        int firstSlot = symbolTable.varCount(SymbolTable.SymbolKind.STATIC);
+        for (Map.Entry<String, Integer> literal : stringPool.entrySet()) {
+            int slot = firstSlot + literal.getValue();
+            vmWriter.writeFunction(stringGetter(literal.getValue()), 0);
+            vmWriter.writePush("static", slot);
+            vmWriter.writeIf("READY"); // heap addresses are never 0
+            buildString(literal.getKey());
+            vmWriter.writePop("static", slot);
+            vmWriter.writeLabel("READY");
+            vmWriter.writePush("static", slot);
+            vmWriter.writeReturn();
+        }
+    }
+
+    // '$' cannot appear in Jack identifiers, so these never clash with user subroutines
+    private String stringGetter(int number) {
+        return className + ".string$" + number;
+    }
+
+    @Override
+    public Void visitSubroutine(SubroutineDec node) {
+        symbolTable.startSubroutine();
+        subroutineType = node.kind();
+        if (subroutineType == Keyword.METHOD) {
+            symbolTable.define("this", className, SymbolTable.SymbolKind.ARGUMENT);
+        }
+        for (Parameter parameter : node.parameters()) {
+            symbolTable.define(parameter.name(), parameter.type(), SymbolTable.SymbolKind.ARGUMENT);
+        }
+        for (VarDec dec : node.locals()) {
+            for (String name : dec.names()) {
+                symbolTable.define(name, dec.type(), SymbolTable.SymbolKind.LOCAL);
+            }
+        }
+
+        if (log != null) {
+            log.append("Writing VM function: ").append(className).append('.').append(node.name()).append('\n');
+        }
+        vmWriter.writeFunction(className + "." + node.name(), symbolTable.varCount(SymbolTable.SymbolKind.LOCAL));
+
+        if (subroutineType == Keyword.CONSTRUCTOR) {
+            int fields = symbolTable.varCount(SymbolTable.SymbolKind.FIELD);
+            vmWriter.writePush("constant", fields);
+            vmWriter.writeCall("Memory.alloc", 1);
+            vmWriter.writePop("pointer", 0);
+        } else if (subroutineType == Keyword.METHOD) {
+            vmWriter.writePush("argument", 0);
+            vmWriter.writePop("pointer", 0);
+        }
+
+        statements(node.body());
+        return null;
+    }
+
+    private void statements(List<Statement> statements) {
+        for (Statement statement : statements) {
+            statement.accept(this);
+        }
+    }
+
+    @Override
+    public Void visitLet(Let node) {
+        if (node.index() != null) {
+            node.index().accept(this);
+            pushVariable(node.name());
+            vmWriter.writeArithmetic("add");
+            node.value().accept(this);
+            vmWriter.writePop("temp", 0);
+            vmWriter.writePop("pointer", 1);
+            vmWriter.writePush("temp", 0);
+            vmWriter.writePop("that", 0);
+        } else {
+            node.value().accept(this);
+            SymbolTable.Symbol symbol = symbolTable.resolve(node.name());
+            vmWriter.writePop(symbol.segment(), symbol.index());
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitIf(If node) {
+        int label = labelCounter++;
+        String labelTrue = "IF_TRUE" + label;
+        String labelFalse = "IF_FALSE" + label;
+        String labelEnd = "IF_END" + label;
+
+        node.condition().accept(this);
+        vmWriter.writeIf(labelTrue);
+        vmWriter.writeGoto(labelFalse);
+        vmWriter.writeLabel(labelTrue);
+        statements(node.thenBranch());
+
+        if (node.elseBranch() != null) {
+            vmWriter.writeGoto(labelEnd);
+            vmWriter.writeLabel(labelFalse);
+            statements(node.elseBranch());
+            vmWriter.writeLabel(labelEnd);
+        } else {
+            vmWriter.writeLabel(labelFalse);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitWhile(While node) {
+        int label = labelCounter++;
+        String labelExp = "WHILE_EXP" + label;
+        String labelEnd = "WHILE_END" + label;
+
+        vmWriter.writeLabel(labelExp);
+        node.condition().accept(this);
+        vmWriter.writeArithmetic("not");
+        vmWriter.writeIf(labelEnd);
+        statements(node.body());
+        vmWriter.writeGoto(labelExp);
+        vmWriter.writeLabel(labelEnd);
+        return null;
+    }
+
+    @Override
+    public Void visitDo(Do node) {
+        if (inline(node.call(), true)) {
+            return null;
+        }
+        node.call().accept(this);
+        vmWriter.writePop("temp", 0); // discard return value
+        return null;
+    }
+
+    @Override
+    public Void visitReturn(Return node) {
+        if (node.value() != null) {
+            node.value().accept(this);
+        } else {
+            vmWriter.writePush("constant", 0);
+        }
+        vmWriter.writeReturn();
+        return null;
+    }
+
+    @Override
+    public Void visitIntegerConstant(IntegerConstant node) {
+        vmWriter.writePush("constant", node.value());
+        return null;
+    }
+
+    @Override
+    public Void visitStringConstant(StringConstant node) {
+        if (poolStrings) {
+            Integer number = stringPool.computeIfAbsent(node.value(), literal -> stringPool.size());
+            vmWriter.writeCall(stringGetter(number), 0);
+        } else {
+            buildString(node.value());
+        }
+        return null;
+    }
+
+    private void buildString(String value) {
+        vmWriter.writePush("constant", value.length());
+        vmWriter.writeCall("String.new", 1);
+        for (int i = 0; i < value.length(); i++) {
+            vmWriter.writePush("constant", value.charAt(i));
+            vmWriter.writeCall("String.appendChar", 2);
+        }
+    }
+
+    @Override
+    public Void visitKeywordConstant(KeywordConstant node) {
+        switch (node.keyword()) {
+            case TRUE -> {
+                vmWriter.writePush("constant", 0);
+                vmWriter.writeArithmetic("not");
+            }
+            case FALSE, NULL -> vmWriter.writePush("constant", 0);
+            case THIS -> vmWriter.writePush("pointer", 0);
+            default -> { }
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitVarRef(VarRef node) {
+        pushVariable(node.name());
+        return null;
+    }
+
+    @Override
+    public Void visitArrayRef(ArrayRef node) {
+        node.index().accept(this);
+        pushVariable(node.name());
+        vmWriter.writeArithmetic("add");
+        vmWriter.writePop("pointer", 1);
+        vmWriter.writePush("that", 0);
+        return null;
+    }
+
+    // A variable receiver is passed as argument 0; a bare name calls a method on this
+    @Override
+    public Void visitCall(Call node) {
+        if (inline(node, false)) {
+            return null;
+        }
+        int nArgs = node.arguments().size();
+        String name;
+        if (node.receiver() != null) {
+            SymbolTable.Symbol symbol = symbolTable.resolve(node.receiver());
+            if (symbol != null) {
+                vmWriter.writePush(symbol.segment(), symbol.index());
+                name = symbol.type() + "." + node.name();
+                nArgs++;
+            } else {
+                name = node.receiver() + "." + node.name();
+            }
+        } else {
+            name = className + "." + node.name();
+            vmWriter.writePush("pointer", 0);
+            nArgs++;
+        }
+        for (Expression argument : node.arguments()) {
+            argument.accept(this);
+        }
+        vmWriter.writeCall(name, nArgs);
+        return null;
+    }
+
+    @Override
+    public Void visitUnary(Unary node) {
+        node.operand().accept(this);
+        vmWriter.writeArithmetic(node.op() == '-' ? "neg" : "not");
+        return null;
+    }
+
+    @Override
+    public Void visitBinary(Binary node) {
+        if (multiplyLimit > 0 && (node.op() == '*' && lowerMultiply(node) || node.op() == '/' && lowerDivide(node))) {
+            return null;
+        }
+        node.left().accept(this);
+        node.right().accept(this);
+        switch (node.op()) {
+            case '+' -> vmWriter.writeArithmetic("add");
+            case '-' -> vmWriter.writeArithmetic("sub");
+            case '*' -> vmWriter.writeCall("Math.multiply", 2);
+            case '/' -> vmWriter.writeCall("Math.divide", 2);
+            case '&' -> vmWriter.writeArithmetic("and");
+            case '|' -> vmWriter.writeArithmetic("or");
+            case '<' -> vmWriter.writeArithmetic("lt");
+            case '>' -> vmWriter.writeArithmetic("gt");
+            case '=' -> vmWriter.writeArithmetic("eq");
+            default -> { }
+        }
+        return null;
+    }
+
+    // x * c or c * x as shifts and adds, when that takes at most multiplyLimit commands
+    private boolean lowerMultiply(Binary node) {
+        Integer right = ConstantFolder.valueOf(node.right());
+        Integer left = ConstantFolder.valueOf(node.left());
+        Expression x = right != null ? node.left() : node.right();
+        Integer c = right != null ? right : left;
+        if (c == null || c == -32768) return false;
+
+        int m = Math.abs(c);
+        boolean simple = isSimple(x);
+        if (m == 0) {
+            if (!ConstantFolder.isPure(x)) return false;
+            vmWriter.writePush("constant", 0);
+            return true;
+        }
+        if (multiplyCost(m, simple) + (c < 0 ? 1 : 0) > multiplyLimit) return false;
+
+        // Walk the bits of m from the top: double the sum for every bit, then add x if it is set
+        Runnable pushX;
+        x.accept(this);
+        if (simple) {
+            pushX = () -> x.accept(this);
+        } else {
+            vmWriter.writePop("temp", 1);
+            vmWriter.writePush("temp", 1);
+            pushX = () -> vmWriter.writePush("temp", 1);
+        }
+        boolean sumIsX = true;
+        for (int bit = 30 - Integer.numberOfLeadingZeros(m); bit >= 0; bit--) {
+            if (sumIsX) {
+                pushX.run();
+                sumIsX = false;
+            } else {
+                vmWriter.writePop("temp", 2);
+                vmWriter.writePush("temp", 2);
+                vmWriter.writePush("temp", 2);
+            }
+            vmWriter.writeArithmetic("add");
+            if ((m & (1 << bit)) != 0) {
+                pushX.run();
+                vmWriter.writeArithmetic("add");
+            }
+        }
+        if (c < 0) {
+            vmWriter.writeArithmetic("neg");
+        }
+        return true;
+    }
+
+    // Commands lowerMultiply emits for |c| = m, besides evaluating x once
+    private static int multiplyCost(int m, boolean simple) {
+        int cost = simple ? 0 : 2;
+        boolean sumIsX = true;
+        for (int bit = 30 - Integer.numberOfLeadingZeros(m); bit >= 0; bit--) {
+            cost += sumIsX ? 2 : 4;
+            sumIsX = false;
+            if ((m & (1 << bit)) != 0) cost += 2;
+        }
+        return cost;
+    }
+
+    // Expressions that cost one command to evaluate again
+    private static boolean isSimple(Expression x) {
+        return x instanceof VarRef || x instanceof IntegerConstant
+                || x instanceof KeywordConstant k && k.keyword() != Keyword.TRUE;
+    }
+
+    // Math.divide only has exact shortcuts for x / 1 and x / -1; the VM has no shift to divide by
+    // other powers of two, and their rounding differs for negative x anyway
+    private boolean lowerDivide(Binary node) {
+        Integer divisor = ConstantFolder.valueOf(node.right());
+        if (divisor == null || divisor != 1 && divisor != -1) return false;
+        node.left().accept(this);
+        if (divisor == -1) {
+            vmWriter.writeArithmetic("neg");
+        }
+        return true;
+    }
+
+    // Expands the call in place when the Inliner has a recipe for its target. For a do statement
+    // (discard) nothing may be left on the stack.
+    private boolean inline(Call node, boolean discard) {
+        if (inliner == null) return false;
+        String receiver = node.receiver();
+        boolean onThis = receiver == null;
+        SymbolTable.Symbol symbol = onThis ? null : symbolTable.resolve(receiver);
+        boolean onVariable = symbol != null;
+        String target = (onThis ? className : onVariable ? symbol.type() : receiver) + "." + node.name();
+        Inliner.Candidate candidate = inliner.candidate(target);
+        if (candidate == null || candidate.method() != (onThis || onVariable)
+                || candidate.parameters().size() != node.arguments().size()) {
+            return false; // not inlinable, or a call that does not match the declaration
+        }
+        if (candidate.method() && onThis && subroutineType == Keyword.FUNCTION) {
+            return false; // no this to read fields from
+        }
+
+        switch (candidate.kind()) {
+            case GETTER -> {
+                if (discard) break;
+                if (onThis) {
+                    vmWriter.writePush("this", candidate.field());
+                } else {
+                    pushVariable(receiver);
+                    vmWriter.writePop("pointer", 1);
+                    vmWriter.writePush("that", candidate.field());
+                }
+            }
+            case SETTER -> {
+                if (!discard) return false; // a void result used as a value
+                Expression value = Inliner.substitute(candidate.value(), candidate.parameters(), node.arguments());
+                if (onThis) {
+                    value.accept(this);
+                    vmWriter.writePop("this", candidate.field());
+                } else if (ConstantFolder.isPure(value)) {
+                    // The arguments cannot change the receiver variable, so read it last
+                    value.accept(this);
+                    pushVariable(receiver);
+                    vmWriter.writePop("pointer", 1);
+                    vmWriter.writePop("that", candidate.field());
+                } else {
+                    pushVariable(receiver);
+                    value.accept(this);
+                    vmWriter.writePop("temp", 0);
+                    vmWriter.writePop("pointer", 1);
+                    vmWriter.writePush("temp", 0);
+                    vmWriter.writePop("that", candidate.field());
+                }
+            }
+            case PURE -> {
+                Inliner.substitute(candidate.value(), candidate.parameters(), node.arguments()).accept(this);
+                if (discard) {
+                    vmWriter.writePop("temp", 0);
+                }
+            }
+        }
+        inlined++;
+        return true;
+    }
+
+    private void pushVariable(String name) {
+        SymbolTable.Symbol symbol = symbolTable.resolve(name);
+        vmWriter.writePush(symbol.segment(), symbol.index());
+    }
+}
@@ -3,40 +3,128 @@ package cs5250_project10and11_nand2tetris;
 import java.io.*;
 import java.util.*;
 
+import cs5250_project10and11_nand2tetris.Tokenizer.Keyword;
+import cs5250_project10and11_nand2tetris.Tokenizer.TokenType;
+
 // Reference: https://github.com/zhixiangli/nand2tetris/blob/main/projects/11/parser.py
 
 public class CompilationEngine {
+    // SINGLE_PASS writes VM code while walking the tokens. AST parses the class into an
+    // Ast.ClassDec first and generates code from the tree, so passes can run in between.
+    public enum Pipeline {
+        SINGLE_PASS,
+        AST
+    }
+
     private final Tokenizer tokenizer;
     private final VMWriter vmWriter;
-    private final SymbolTable symbolTable = new SymbolTable();
-    private String className;
-    private String subroutineName;
-    private String subroutineType;
+    private final PeepholeVMWriter peephole; // null unless peephole rules are enabled
+    private final Identifiers ids;         // intern table of the tokenizer; names below are its IDs
+    private final SymbolTable symbolTable;
+    private int className;
+    private int subroutineName;
+    private Keyword subroutineType;
     private int labelCounter = 0;
+    private final boolean verbose;
+    private final Inliner inliner; // set for trees compiled with whole-directory knowledge
+    private final StringBuilder log = new StringBuilder();
 
     public CompilationEngine(File inputFile, File outputFile) throws IOException {
-        this.tokenizer = new Tokenizer(inputFile);
-        this.vmWriter = new VMWriter(new PrintWriter(outputFile));
-        tokenizer.advance(); // Start with first token
-        compileClass();
-        vmWriter.close();
+        this(inputFile, outputFile, new CompilerOptions());
+    }
+
+    public CompilationEngine(File inputFile, File outputFile, CompilerOptions options) throws IOException {
+        this(inputFile, outputFile, options, null);
+    }
+
+    // Records the phases of this compile in stats when it is not null
+    public CompilationEngine(File inputFile, File outputFile, CompilerOptions options, CompileStats stats) throws IOException {
+        this(new Tokenizer(inputFile, options.lexing, stats), null, outputFile, options, null, stats);
+    }
+
+    // Compiles from a tokenizer that has not been advanced yet, e.g. one shared with other outputs
+    public CompilationEngine(Tokenizer tokenizer, File outputFile, CompilerOptions options) throws IOException {
+        this(tokenizer, null, outputFile, options, null, tokenizer.stats());
+    }
+
+    // Generates code for a class that was parsed beforehand, e.g. pruned by whole-program analysis
+    // and, with an Inliner, calls into the rest of its directory expanded in place
+    public CompilationEngine(Ast.ClassDec tree, File outputFile, CompilerOptions options, Inliner inliner,
+                             CompileStats stats) throws IOException {
+        this(null, tree, outputFile, options, inliner, stats);
+    }
+
+    private CompilationEngine(Tokenizer tokenizer, Ast.ClassDec tree, File outputFile, CompilerOptions options,
+                              Inliner inliner, CompileStats stats) throws IOException {
+        this.verbose = options.verbose;
+        this.inliner = inliner;
+        this.tokenizer = tokenizer;
+        this.ids = tokenizer != null ? tokenizer.identifiers() : new Identifiers();
+        this.symbolTable = new SymbolTable(ids);
+        VMWriter output = options.asm ? new AsmVMWriter(outputFile)
+                : options.binary ? new BinaryVMWriter(outputFile) : new BufferedVMWriter(outputFile);
+        if (stats != null) output = stats.counting(output);
+        this.peephole = options.peephole.isEmpty() ? null : new PeepholeVMWriter(output, options.peephole);
+        this.vmWriter = peephole != null ? peephole : output;
+        try {
+            if (tree != null) {
+                generate(tree, options, stats);
+            } else if (options.usesAst()) {
+                if (stats != null) stats.begin(CompileStats.Phase.PARSE);
+                tokenizer.advance(); // Start with first token
+                Ast.ClassDec parsed = new AstParser(tokenizer).parseClass();
+                if (stats != null) stats.end();
+                generate(parsed, options, stats);
+            } else {
+                if (stats != null) stats.begin(CompileStats.Phase.GENERATE);
+                tokenizer.advance(); // Start with first token
+                compileClass();
+                if (stats != null) stats.end();
+            }
+        } finally {
+            if (tokenizer != null) tokenizer.close();
+            if (stats != null) stats.begin(CompileStats.Phase.WRITE);
+            vmWriter.close();
+            if (stats != null) stats.end();
+        }
+    }
+
+    // AST pipeline: optimization passes, then code generation
+    private void generate(Ast.ClassDec tree, CompilerOptions options, CompileStats stats) {
+        if (options.fold) {
+            if (stats != null) stats.begin(CompileStats.Phase.OPTIMIZE);
+            tree = new ConstantFolder().fold(tree);
+            if (stats != null) stats.end();
+        }
+        if (stats != null) stats.begin(CompileStats.Phase.GENERATE);
+        tree.accept(new CodeGenerator(vmWriter, verbose ? log : null, options, inliner));
+        if (stats != null) stats.end();
+    }
+
+    // Progress messages collected while compiling; empty unless verbose.
+    // Kept per engine so parallel compiles do not interleave their output.
+    public String getLog() {
+        return log.toString();
+    }
+
+    // Commands removed by each peephole rule, indexed by PeepholeVMWriter.Rule.ordinal(); null when off
+    public int[] getPeepholeRemoved() {
+        return peephole != null ? peephole.removedCounts() : null;
     }
 
     private void compileClass() {
         tokenizer.advance(); // 'class'
-        className = tokenizer.identifier();
+        className = tokenizer.identifierId();
         tokenizer.advance(); // className
         tokenizer.advance(); // '{'
 
-        while (tokenizer.tokenType().equals("KEYWORD") &&
-               (tokenizer.keyWord().equals("static") || tokenizer.keyWord().equals("field"))) {
+        while (tokenizer.keywordIs(Keyword.STATIC) || tokenizer.keywordIs(Keyword.FIELD)) {
             compileClassVarDec();
         }
 
-        while (tokenizer.tokenType().equals("KEYWORD") &&
-               (tokenizer.keyWord().equals("constructor") ||
-                tokenizer.keyWord().equals("function") ||
-                tokenizer.keyWord().equals("method"))) {
+        while (tokenizer.keywordIs(Keyword.CONSTRUCTOR) ||
+               tokenizer.keywordIs(Keyword.FUNCTION) ||
+               tokenizer.keywordIs(Keyword.METHOD)) {
             compileSubroutine();
         }
 
@@ -44,62 +132,60 @@ public class CompilationEngine {
     }
 
     private void compileClassVarDec() {
-        String kind = tokenizer.keyWord(); // 'static' or 'field'
-        tokenizer.advance();
-        String type = tokenizer.identifier(); // type
+        SymbolTable.SymbolKind kind = tokenizer.keyWord() == Keyword.STATIC
+                ? SymbolTable.SymbolKind.STATIC
+                : SymbolTable.SymbolKind.FIELD;
+        tokenizer.advance(); // 'static' or 'field'
+        int type = typeName();
         tokenizer.advance();
-        String name = tokenizer.identifier(); // varName
+        int name = tokenizer.identifierId(); // varName
         tokenizer.advance();
 
-        symbolTable.define(name, type, SymbolTable.SymbolKind.valueOf(kind.toUpperCase()));
+        symbolTable.define(name, type, kind);
 
-        while (tokenizer.tokenType().equals("SYMBOL") && tokenizer.symbolIs(',')) {
+        while (tokenizer.symbolIs(',')) {
             tokenizer.advance(); // ','
-            name = tokenizer.identifier();
+            name = tokenizer.identifierId();
             tokenizer.advance();
-            symbolTable.define(name, type, SymbolTable.SymbolKind.valueOf(kind.toUpperCase()));
+            symbolTable.define(name, type, kind);
         }
 
         tokenizer.advance(); // ';'
     }
 
     private void compileSubroutine() {
-        // Debug
-        // System.out.println("Found subroutine in class " + className + ": " + tokenizer.getCurrentToken());
-
         symbolTable.startSubroutine();
 
-        subroutineType = tokenizer.keyWord(); // constructor/function/method
+        subroutineType = tokenizer.keyWord();
+        tokenizer.advance(); // constructor/function/method
         tokenizer.advance(); // return type
+        subroutineName = tokenizer.identifierId();
         tokenizer.advance(); // subroutine name
-        subroutineName = tokenizer.identifier();
         tokenizer.advance(); // '('
 
-        if (subroutineType.equals("method")) {
-            symbolTable.define("this", className, SymbolTable.SymbolKind.ARGUMENT);
+        if (subroutineType == Keyword.METHOD) {
+            symbolTable.define(ids.intern("this"), className, SymbolTable.SymbolKind.ARGUMENT);
         }
 
         compileParameterList();
         tokenizer.advance(); // ')'
         compileSubroutineBody();
-
-        tokenizer.advance(); // '}'
     }
 
     private void compileParameterList() {
-        if (tokenizer.tokenType().equals("SYMBOL") && tokenizer.symbolIs(')')) return;
+        if (tokenizer.symbolIs(')')) return;
 
-        String type = tokenizer.identifier();
+        int type = typeName();
         tokenizer.advance();
-        String name = tokenizer.identifier();
+        int name = tokenizer.identifierId();
         tokenizer.advance();
         symbolTable.define(name, type, SymbolTable.SymbolKind.ARGUMENT);
 
-        while (tokenizer.tokenType().equals("SYMBOL") && tokenizer.symbolIs(',')) {
+        while (tokenizer.symbolIs(',')) {
             tokenizer.advance(); // ','
-            type = tokenizer.identifier();
+            type = typeName();
             tokenizer.advance();
-            name = tokenizer.identifier();
+            name = tokenizer.identifierId();
             tokenizer.advance();
             symbolTable.define(name, type, SymbolTable.SymbolKind.ARGUMENT);
         }
@@ -107,19 +193,21 @@ public class CompilationEngine {
 
     private void compileSubroutineBody() {
         tokenizer.advance(); // '{'
-        while (tokenizer.tokenType().equals("KEYWORD") && tokenizer.keyWord().equals("var")) {
+        while (tokenizer.keywordIs(Keyword.VAR)) {
             compileVarDec();
         }
 
-        System.out.println("Writing VM function: " + className + "." + subroutineName);
-        vmWriter.writeFunction(className + "." + subroutineName, symbolTable.varCount(SymbolTable.SymbolKind.LOCAL));        
+        if (verbose) {
+            log.append("Writing VM function: ").append(ids.qualified(className, subroutineName)).append('\n');
+        }
+        vmWriter.writeFunction(ids.qualified(className, subroutineName), symbolTable.varCount(SymbolTable.SymbolKind.LOCAL));
 
-        if (subroutineType.equals("constructor")) {
+        if (subroutineType == Keyword.CONSTRUCTOR) {
             int fields = symbolTable.varCount(SymbolTable.SymbolKind.FIELD);
             vmWriter.writePush("constant", fields);
             vmWriter.writeCall("Memory.alloc", 1);
             vmWriter.writePop("pointer", 0);
-        } else if (subroutineType.equals("method")) {
+        } else if (subroutineType == Keyword.METHOD) {
             vmWriter.writePush("argument", 0);
             vmWriter.writePop("pointer", 0);
         }
@@ -130,62 +218,55 @@ public class CompilationEngine {
 
     private void compileVarDec() {
         tokenizer.advance(); // 'var'
-        String type = tokenizer.identifier();
+        int type = typeName();
         tokenizer.advance();
-        String name = tokenizer.identifier();
+        int name = tokenizer.identifierId();
         tokenizer.advance();
         symbolTable.define(name, type, SymbolTable.SymbolKind.LOCAL);
 
-        while (tokenizer.tokenType().equals("SYMBOL") && tokenizer.symbolIs(',')) {
+        while (tokenizer.symbolIs(',')) {
             tokenizer.advance(); // ','
-            name = tokenizer.identifier();
+            name = tokenizer.identifierId();
             tokenizer.advance();
             symbolTable.define(name, type, SymbolTable.SymbolKind.LOCAL);
         }
 
         tokenizer.advance(); // ';'
     }
-    
+
+    // Type names are either a class name or one of the int/char/boolean/void keywords
+    private int typeName() {
+        return tokenizer.tokenType() == TokenType.KEYWORD ? ids.intern(tokenizer.keyWord().text()) : tokenizer.identifierId();
+    }
+
     private void compileStatements() {
-        while (tokenizer.tokenType().equals("KEYWORD")) {
-            String keyWord = tokenizer.keyWord();
-
-            // Debug
-            // System.out.println("Begin compiling statements");
-            // System.out.println("Current token type: " + tokenizer.tokenType());
-            // System.out.println("Current token: " + tokenizer.getCurrentToken());
-
-            if (keyWord.equals("let")) {
-                compileLet();
-                System.out.println("Next token in compileStatements: " + tokenizer.getCurrentToken());
-            } else if (keyWord.equals("if")) {
-                compileIf();
-            } else if (keyWord.equals("while")) {
-                compileWhile();
-            } else if (keyWord.equals("do")) {
-                compileDo();
-            } else if (keyWord.equals("return")) {
-                compileReturn();
-            } else {
-                break; // No more statements to compile
+        while (tokenizer.tokenType() == TokenType.KEYWORD) {
+            switch (tokenizer.keyWord()) {
+                case LET -> compileLet();
+                case IF -> compileIf();
+                case WHILE -> compileWhile();
+                case DO -> compileDo();
+                case RETURN -> compileReturn();
+                default -> {
+                    return; // No more statements to compile
+                }
             }
         }
     }
 
     private void compileLet() {
         tokenizer.advance(); // 'let'
-        String name = tokenizer.identifier();
+        int name = tokenizer.identifierId();
         tokenizer.advance(); // varName
 
         boolean isArray = false;
-        if (tokenizer.tokenType().equals("SYMBOL") && tokenizer.symbolIs('[')) {
+        if (tokenizer.symbolIs('[')) {
             isArray = true;
             tokenizer.advance(); // '['
             compileExpression();
             tokenizer.advance(); // ']'
-            SymbolTable.SymbolKind kind = symbolTable.kindOf(name);
-            int index = symbolTable.indexOf(name);
-            vmWriter.writePush(kind.getVMSegment(), index);
+            SymbolTable.Symbol symbol = symbolTable.resolve(name);
+            vmWriter.writePush(symbol.segment(), symbol.index());
             vmWriter.writeArithmetic("add");
         }
 
@@ -193,16 +274,14 @@ public class CompilationEngine {
         compileExpression();
         tokenizer.advance(); // ';'
 
-        SymbolTable.SymbolKind kind = symbolTable.kindOf(name);
-        int index = symbolTable.indexOf(name);
-
         if (isArray) {
             vmWriter.writePop("temp", 0);
             vmWriter.writePop("pointer", 1);
             vmWriter.writePush("temp", 0);
             vmWriter.writePop("that", 0);
         } else {
-            vmWriter.writePop(kind.getVMSegment(), index);
+            SymbolTable.Symbol symbol = symbolTable.resolve(name);
+            vmWriter.writePop(symbol.segment(), symbol.index());
         }
     }
 
@@ -225,7 +304,7 @@ public class CompilationEngine {
         compileStatements();
         tokenizer.advance(); // '}'
 
-        if (tokenizer.tokenType().equals("KEYWORD") && tokenizer.keyWord().equals("else")) {
+        if (tokenizer.keywordIs(Keyword.ELSE)) {
             vmWriter.writeGoto(labelEnd);
             vmWriter.writeLabel(labelFalse);
             tokenizer.advance(); // 'else'
@@ -263,17 +342,34 @@ public class CompilationEngine {
 
     private void compileDo() {
         tokenizer.advance(); // 'do'
-        String name = tokenizer.identifier();
+        int name = tokenizer.identifierId();
         tokenizer.advance();
 
+        compileSubroutineCall(name);
+        tokenizer.advance(); // ';'
+
+        vmWriter.writePop("temp", 0); // discard return value
+    }
+
+    // Compiles the rest of a call whose first identifier has already been consumed:
+    // foo(...), Class.foo(...) or var.foo(...), where a variable receiver is passed as argument 0.
+    private void compileSubroutineCall(int first) {
         int nArgs = 0;
-        if (tokenizer.tokenType().equals("SYMBOL") && tokenizer.symbolIs('.')) {
+        String name;
+        if (tokenizer.symbolIs('.')) {
             tokenizer.advance(); // '.'
-            String method = tokenizer.identifier();
+            int method = tokenizer.identifierId();
             tokenizer.advance();
-            name = name + "." + method;
+
+            SymbolTable.Symbol symbol = symbolTable.resolve(first);
+            if (symbol != null) {
+                vmWriter.writePush(symbol.segment(), symbol.index());
+                first = symbol.typeId();
+                nArgs++;
+            }
+            name = ids.qualified(first, method);
         } else {
-            name = className + "." + name;
+            name = ids.qualified(className, first);
             vmWriter.writePush("pointer", 0);
             nArgs++;
         }
@@ -281,15 +377,13 @@ public class CompilationEngine {
         tokenizer.advance(); // '('
         nArgs += compileExpressionList();
         tokenizer.advance(); // ')'
-        tokenizer.advance(); // ';'
 
         vmWriter.writeCall(name, nArgs);
-        vmWriter.writePop("temp", 0); // discard return value
     }
 
     private void compileReturn() {
         tokenizer.advance(); // 'return'
-        if (!(tokenizer.tokenType().equals("SYMBOL") && tokenizer.symbolIs(';'))) {
+        if (!tokenizer.symbolIs(';')) {
             compileExpression();
         } else {
             vmWriter.writePush("constant", 0);
@@ -301,120 +395,110 @@ public class CompilationEngine {
 
     private int compileExpressionList() {
         int count = 0;
-        if (!(tokenizer.tokenType().equals("SYMBOL") && tokenizer.symbolIs(')'))) {
+        if (!tokenizer.symbolIs(')')) {
             compileExpression();
             count++;
 
-            while (tokenizer.tokenType().equals("SYMBOL") && tokenizer.symbolIs(',')) {
+            while (tokenizer.symbolIs(',')) {
                 tokenizer.advance(); // ','
                 compileExpression();
                 count++;
             }
         }
-        
+
         return count;
     }
 
     private void compileExpression() {
         compileTerm();
-        while (tokenizer.tokenType().equals("SYMBOL") &&
-               "+-*/&|<>=~".contains(String.valueOf(tokenizer.symbol()))) {
-            String op = tokenizer.getCurrentToken();
+        while (tokenizer.tokenType() == TokenType.SYMBOL && isOp(tokenizer.symbol())) {
+            char op = tokenizer.symbol();
             tokenizer.advance();
             compileTerm();
 
-            if (op.equals("+")) {
-                vmWriter.writeArithmetic("add");
-            } else if (op.equals("-")) {
-                vmWriter.writeArithmetic("sub");
-            } else if (op.equals("*")) {
-                vmWriter.writeCall("Math.multiply", 2);
-            } else if (op.equals("/")) {
-                vmWriter.writeCall("Math.divide", 2);
-            } else if (op.equals("&")) {
-                vmWriter.writeArithmetic("and");
-            } else if (op.equals("|")) {
-                vmWriter.writeArithmetic("or");
-            } else if (op.equals("<")) {
-                vmWriter.writeArithmetic("lt");
-            } else if (op.equals(">")) {
-                vmWriter.writeArithmetic("gt");
-            } else if (op.equals("=")) {
-                vmWriter.writeArithmetic("eq");
+            switch (op) {
+                case '+' -> vmWriter.writeArithmetic("add");
+                case '-' -> vmWriter.writeArithmetic("sub");
+                case '*' -> vmWriter.writeCall("Math.multiply", 2);
+                case '/' -> vmWriter.writeCall("Math.divide", 2);
+                case '&' -> vmWriter.writeArithmetic("and");
+                case '|' -> vmWriter.writeArithmetic("or");
+                case '<' -> vmWriter.writeArithmetic("lt");
+                case '>' -> vmWriter.writeArithmetic("gt");
+                case '=' -> vmWriter.writeArithmetic("eq");
+                default -> { }
             }
         }
     }
 
+    private static boolean isOp(char c) {
+        return switch (c) {
+            case '+', '-', '*', '/', '&', '|', '<', '>', '=', '~' -> true;
+            default -> false;
+        };
+    }
+
     private void compileTerm() {
-        String type = tokenizer.tokenType();
-        if (type.equals("INT_CONST")) {
-            vmWriter.writePush("constant", tokenizer.intVal());
-            tokenizer.advance();
-        } else if (type.equals("STRING_CONST")) {
-            String value = tokenizer.stringVal();
-            tokenizer.advance();
-            vmWriter.writePush("constant", value.length());
-            vmWriter.writeCall("String.new", 1);
-            for (char c : value.toCharArray()) {
-                vmWriter.writePush("constant", (int) c);
-                vmWriter.writeCall("String.appendChar", 2);
+        switch (tokenizer.tokenType()) {
+            case INT_CONST -> {
+                vmWriter.writePush("constant", tokenizer.intVal());
+                tokenizer.advance();
             }
-        } else if (type.equals("KEYWORD")) {
-            String keyword = tokenizer.keyWord();
-            switch (keyword) {
-                case "true" -> {
-                    vmWriter.writePush("constant", 0);
-                    vmWriter.writeArithmetic("not");
+            case STRING_CONST -> {
+                String value = tokenizer.stringVal();
+                tokenizer.advance();
+                vmWriter.writePush("constant", value.length());
+                vmWriter.writeCall("String.new", 1);
+                for (int i = 0; i < value.length(); i++) {
+                    vmWriter.writePush("constant", value.charAt(i));
+                    vmWriter.writeCall("String.appendChar", 2);
                 }
-                case "false", "null" -> vmWriter.writePush("constant", 0);
-                case "this" -> vmWriter.writePush("pointer", 0);
             }
-            tokenizer.advance();
-        } else if (type.equals("IDENTIFIER")) {
-            String name = tokenizer.identifier();
-            tokenizer.advance();
-
-            if (tokenizer.tokenType().equals("SYMBOL") && tokenizer.symbolIs('[')) {
+            case KEYWORD -> {
+                switch (tokenizer.keyWord()) {
+                    case TRUE -> {
+                        vmWriter.writePush("constant", 0);
+                        vmWriter.writeArithmetic("not");
+                    }
+                    case FALSE, NULL -> vmWriter.writePush("constant", 0);
+                    case THIS -> vmWriter.writePush("pointer", 0);
+                    default -> { }
+                }
                 tokenizer.advance();
-                compileExpression();
+            }
+            case IDENTIFIER -> {
+                int name = tokenizer.identifierId();
                 tokenizer.advance();
-                SymbolTable.SymbolKind kind = symbolTable.kindOf(name);
-                int index = symbolTable.indexOf(name);
-                vmWriter.writePush(kind.getVMSegment(), index);
-                vmWriter.writeArithmetic("add");
-                vmWriter.writePop("pointer", 1);
-                vmWriter.writePush("that", 0);
-            } else if (tokenizer.tokenType().equals("SYMBOL") &&
-                       (tokenizer.symbolIs('(') || tokenizer.symbolIs('.'))) {
-                String fullName = name;
-                int nArgs = 0;
-                if (tokenizer.symbolIs('.')) {
+
+                if (tokenizer.symbolIs('[')) {
                     tokenizer.advance();
-                    fullName += "." + tokenizer.identifier();
+                    compileExpression();
                     tokenizer.advance();
+                    SymbolTable.Symbol symbol = symbolTable.resolve(name);
+                    vmWriter.writePush(symbol.segment(), symbol.index());
+                    vmWriter.writeArithmetic("add");
+                    vmWriter.writePop("pointer", 1);
+                    vmWriter.writePush("that", 0);
+                } else if (tokenizer.symbolIs('(') || tokenizer.symbolIs('.')) {
+                    compileSubroutineCall(name);
                 } else {
-                    fullName = className + "." + name;
-                    vmWriter.writePush("pointer", 0);
-                    nArgs++;
+                    SymbolTable.Symbol symbol = symbolTable.resolve(name);
+                    vmWriter.writePush(symbol.segment(), symbol.index());
                 }
-                tokenizer.advance(); // '('
-                nArgs += compileExpressionList();
-                tokenizer.advance(); // ')'
-                vmWriter.writeCall(fullName, nArgs);
-            } else {
-                SymbolTable.SymbolKind kind = symbolTable.kindOf(name);
-                int index = symbolTable.indexOf(name);
-                vmWriter.writePush(kind.getVMSegment(), index);
             }
-        } else if (type.equals("SYMBOL") && tokenizer.symbolIs('(')) {
-            tokenizer.advance(); // '('
-            compileExpression();
-            tokenizer.advance(); // ')'
-        } else if (type.equals("SYMBOL") && (tokenizer.symbolIs('-') || tokenizer.symbolIs('~'))) {
-            String unaryOp = tokenizer.getCurrentToken();
-            tokenizer.advance();
-            compileTerm();
-            vmWriter.writeArithmetic(unaryOp.equals("-") ? "neg" : "not");
+            case SYMBOL -> {
+                if (tokenizer.symbolIs('(')) {
+                    tokenizer.advance(); // '('
+                    compileExpression();
+                    tokenizer.advance(); // ')'
+                } else if (tokenizer.symbolIs('-') || tokenizer.symbolIs('~')) {
+                    char unaryOp = tokenizer.symbol();
+                    tokenizer.advance();
+                    compileTerm();
+                    vmWriter.writeArithmetic(unaryOp == '-' ? "neg" : "not");
+                }
+            }
+            default -> { }
         }
     }
 }
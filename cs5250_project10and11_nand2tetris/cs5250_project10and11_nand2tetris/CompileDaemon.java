@@ -0,0 +1,275 @@
+package cs5250_project10and11_nand2tetris;
+
+import java.io.*;
+import java.net.*;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Long-lived compile server, so builds run on a JVM whose compiler classes are already JIT-compiled.
+//
+//   Main --daemon [--port N]                         start serving (default port 5250)
+//   Main --use-daemon [--port N] [options] paths...  forward a compile to it, or compile locally if it is down
+//   Main --stop-daemon [--port N]                    shut it down
+//
+// Protocol, one UTF-8 line per item. The client sends "JACKC/1 COMPILE" (or "JACKC/1 STOP"), its working
+// directory, one line per argument and an empty line. The server answers with output lines prefixed
+// "O " (stdout) or "E " (stderr) as they are produced, then "X <exit code>".
+//
+// Compiles read and write files as the daemon's owner, so only the owner may connect: the daemon
+// listens on a Unix-domain socket, ~/.jackc/daemon-<port>.sock, in a directory only the owner can
+// open. The port just tells several daemons of one user apart.
+public class CompileDaemon {
+    public static final int DEFAULT_PORT = 5250;
+    private static final String HELLO = "JACKC/1 ";
+
+    private final Path socket;
+    private volatile boolean running = true;
+
+    private CompileDaemon(Path socket) {
+        this.socket = socket;
+    }
+
+    // True when the arguments ask for one of the daemon modes
+    public static boolean handles(String[] args) {
+        return args.length > 0 && (args[0].equals("--daemon") || args[0].equals("--use-daemon")
+                || args[0].equals("--stop-daemon"));
+    }
+
+    // Runs a daemon mode and returns the exit code; for --use-daemon with no daemon listening,
+    // falls back to compiling in this process.
+    public static int run(String[] args) {
+        int port = DEFAULT_PORT;
+        int next = 1;
+        if (args.length > 2 && args[1].equals("--port")) {
+            try {
+                port = parsePort(args[2]);
+            } catch (IllegalArgumentException e) {
+                System.err.println(e.getMessage());
+                return 2;
+            }
+            next = 3;
+        }
+        String[] rest = Arrays.copyOfRange(args, next, args.length);
+
+        try {
+            Path socket = socketFor(port);
+            switch (args[0]) {
+                case "--daemon":
+                    new CompileDaemon(socket).serve();
+                    return 0;
+                case "--stop-daemon":
+                    return send(socket, "STOP", rest, System.out, System.err);
+                default:
+                    return send(socket, "COMPILE", rest, System.out, System.err);
+            }
+        } catch (ConnectException | NoSuchFileException e) {
+            if (args[0].equals("--stop-daemon")) {
+                System.err.println("No compile daemon on port " + port + ".");
+                return 1;
+            }
+            System.err.println("No compile daemon on port " + port + "; compiling locally.");
+            return Main.compileOnce(rest);
+        } catch (IOException e) {
+            System.err.println("Compile daemon error: " + e.getMessage());
+            return 1;
+        }
+    }
+
+    static int parsePort(String value) {
+        int port = CompilerOptions.parseCount("--port", value);
+        if (port < 1 || port > 65535) {
+            throw new IllegalArgumentException("--port expects a number from 1 to 65535, got '" + value + "'");
+        }
+        return port;
+    }
+
+    // The socket of the daemon for a port, in ~/.jackc. The directory is created owner-only, and
+    // an existing one is refused unless this user owns it and nobody else can get in.
+    private static Path socketFor(int port) throws IOException {
+        Path directory = Paths.get(System.getProperty("user.home"), ".jackc");
+        boolean posix = FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+        if (!Files.isDirectory(directory, LinkOption.NOFOLLOW_LINKS)) {
+            if (posix) {
+                Files.createDirectory(directory, PosixFilePermissions.asFileAttribute(
+                        EnumSet.of(PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE, PosixFilePermission.OWNER_EXECUTE)));
+            } else {
+                Files.createDirectory(directory); // the home directory is already private on Windows
+            }
+        }
+        if (posix) {
+            Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(directory, LinkOption.NOFOLLOW_LINKS);
+            String owner = Files.getOwner(directory, LinkOption.NOFOLLOW_LINKS).getName();
+            if (!owner.equals(System.getProperty("user.name"))
+                    || !EnumSet.of(PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE, PosixFilePermission.OWNER_EXECUTE)
+                            .containsAll(permissions)) {
+                throw new IOException(directory + " must belong to you and be accessible only by you (chmod 700)");
+            }
+        }
+        return directory.resolve("daemon-" + port + ".sock");
+    }
+
+    private void serve() throws IOException {
+        ExecutorService handlers = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "jackc-daemon-client");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (Files.exists(socket, LinkOption.NOFOLLOW_LINKS)) {
+            try {
+                SocketChannel.open(UnixDomainSocketAddress.of(socket)).close();
+            } catch (ConnectException e) {
+                Files.delete(socket); // left behind by a daemon that did not shut down cleanly
+            }
+            if (Files.exists(socket, LinkOption.NOFOLLOW_LINKS)) {
+                throw new IOException("A compile daemon is already listening on " + socket);
+            }
+        }
+        try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            server.bind(UnixDomainSocketAddress.of(socket));
+            System.out.println("Compile daemon listening on " + socket);
+            while (running) {
+                SocketChannel client = server.accept();
+                handlers.execute(() -> handle(client, server));
+            }
+        } catch (ClosedChannelException e) {
+            if (running) throw e; // otherwise the socket was closed by a STOP request
+        } finally {
+            handlers.shutdown();
+            Files.deleteIfExists(socket);
+        }
+        System.out.println("Compile daemon stopped.");
+    }
+
+    private void handle(SocketChannel client, ServerSocketChannel server) {
+        try (client;
+             BufferedReader in = new BufferedReader(new InputStreamReader(Channels.newInputStream(client), StandardCharsets.UTF_8));
+             Writer socketOut = new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(client), StandardCharsets.UTF_8))) {
+            String hello = in.readLine();
+            String workingDirectory = in.readLine();
+            List<String> args = new ArrayList<>();
+            for (String line = in.readLine(); line != null && !line.isEmpty(); line = in.readLine()) {
+                args.add(line);
+            }
+
+            int code;
+            if (hello == null || !hello.startsWith(HELLO) || workingDirectory == null) {
+                code = 2;
+                writeLine(socketOut, "E Malformed request");
+            } else if (hello.equals(HELLO + "STOP")) {
+                running = false;
+                code = 0;
+                writeLine(socketOut, "O Compile daemon stopping.");
+            } else {
+                PrintStream out = new PrintStream(new LineForwarder(socketOut, "O "), true, StandardCharsets.UTF_8);
+                PrintStream err = new PrintStream(new LineForwarder(socketOut, "E "), true, StandardCharsets.UTF_8);
+                code = compile(new File(workingDirectory), args, out, err);
+                out.close();
+                err.close();
+            }
+            writeLine(socketOut, "X " + code);
+            socketOut.flush();
+            if (!running) server.close(); // after the reply, so the client sees it before the daemon exits
+        } catch (IOException e) {
+            // Client went away; nothing to report to
+        }
+    }
+
+    // Same as a local command-line compile, with relative paths taken from the client's directory
+    private static int compile(File workingDirectory, List<String> args, PrintStream out, PrintStream err) {
+        CompilerOptions options = new CompilerOptions();
+        List<String> paths;
+        try {
+            paths = options.parse(args.toArray(new String[0]));
+        } catch (IllegalArgumentException e) {
+            err.println(e.getMessage());
+            err.println(CompilerOptions.USAGE);
+            return 2;
+        }
+        List<File> inputs = new ArrayList<>();
+        for (String path : paths) {
+            File input = new File(path);
+            inputs.add(input.isAbsolute() ? input : new File(workingDirectory, path));
+        }
+        return Main.build(inputs, options, out, err);
+    }
+
+    private static int send(Path socket, String command, String[] args, PrintStream out, PrintStream err) throws IOException {
+        if (!Files.exists(socket, LinkOption.NOFOLLOW_LINKS)) throw new NoSuchFileException(socket.toString());
+        try (SocketChannel channel = SocketChannel.open(UnixDomainSocketAddress.of(socket))) {
+            Writer request = new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(channel), StandardCharsets.UTF_8));
+            writeLine(request, HELLO + command);
+            writeLine(request, new File("").getAbsolutePath());
+            for (String arg : args) {
+                writeLine(request, arg);
+            }
+            writeLine(request, "");
+            request.flush();
+
+            BufferedReader response = new BufferedReader(new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.UTF_8));
+            for (String line = response.readLine(); line != null; line = response.readLine()) {
+                if (line.startsWith("O ")) {
+                    out.println(line.substring(2));
+                } else if (line.startsWith("E ")) {
+                    err.println(line.substring(2));
+                } else if (line.startsWith("X ")) {
+                    return Integer.parseInt(line.substring(2).trim());
+                }
+            }
+            err.println("Compile daemon closed the connection.");
+            return 1;
+        }
+    }
+
+    private static void writeLine(Writer writer, String line) throws IOException {
+        synchronized (writer) {
+            writer.write(line);
+            writer.write('\n');
+        }
+    }
+
+    // Turns each line written to a PrintStream into one prefixed protocol line
+    private static class LineForwarder extends OutputStream {
+        private final Writer socketOut;
+        private final String prefix;
+        private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+        LineForwarder(Writer socketOut, String prefix) {
+            this.socketOut = socketOut;
+            this.prefix = prefix;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (b == '\n') {
+                emit();
+            } else if (b != '\r') {
+                line.write(b);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            synchronized (socketOut) {
+                socketOut.flush();
+            }
+        }
+
+        // Sends any unterminated last line; leaves the socket open for the exit code
+        @Override
+        public void close() throws IOException {
+            if (line.size() > 0) emit();
+            flush();
+        }
+
+        private void emit() throws IOException {
+            writeLine(socketOut, prefix + line.toString(StandardCharsets.UTF_8));
+            line.reset();
+        }
+    }
+}
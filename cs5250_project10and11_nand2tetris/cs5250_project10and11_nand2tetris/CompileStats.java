@@ -0,0 +1,293 @@
+package cs5250_project10and11_nand2tetris;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+// Where the time of compiling one file goes: wall time per phase, tokens lexed, VM commands
+// emitted and bytes allocated by the compiling thread. Only created when --stats or --stats-json
+// asks for a report, or when a JFR recording has the Jack compiler events enabled; otherwise the
+// compiler passes null around and each phase boundary costs one null check.
+// Every phase is also committed as a jack.CompilePhase event and every file as a jack.CompileFile
+// event, so the numbers line up with GC and allocation samples in JDK Mission Control.
+public final class CompileStats {
+    // Phases of one compile. With the scanner, READ and LEX are separate steps; the regex lexer
+    // adds STRIP_COMMENTS in between. Streaming lexing happens on demand, so its work is part of
+    // PARSE (AST pipeline) or GENERATE (single pass, where parsing and code generation are one walk).
+    // WRITE is the final flush and close of the output; buffers that fill up earlier are written
+    // during GENERATE.
+    public enum Phase {
+        READ("read"),
+        STRIP_COMMENTS("strip"),
+        LEX("lex"),
+        PARSE("parse"),
+        OPTIMIZE("optimize"),
+        GENERATE("generate"),
+        WRITE("write");
+
+        private final String label;
+
+        Phase(String label) {
+            this.label = label;
+        }
+
+        public String label() {
+            return label;
+        }
+    }
+
+    @Name("jack.CompilePhase")
+    @Label("Compile Phase")
+    @Category({"Jack Compiler"})
+    @Description("One phase of compiling a .jack file")
+    static class PhaseEvent extends Event {
+        @Label("Source")
+        String source;
+
+        @Label("Phase")
+        String phase;
+    }
+
+    @Name("jack.CompileFile")
+    @Label("Compile File")
+    @Category({"Jack Compiler"})
+    @Description("Totals for compiling one .jack file")
+    static class FileEvent extends Event {
+        @Label("Source")
+        String source;
+
+        @Label("Tokens")
+        long tokens;
+
+        @Label("VM Commands")
+        long commands;
+
+        @Label("Allocated")
+        @DataAmount
+        long allocatedBytes;
+
+        @Label("Read") @Timespan long read;
+        @Label("Strip Comments") @Timespan long stripComments;
+        @Label("Lex") @Timespan long lex;
+        @Label("Parse") @Timespan long parse;
+        @Label("Optimize") @Timespan long optimize;
+        @Label("Generate") @Timespan long generate;
+        @Label("Write") @Timespan long write;
+    }
+
+    // Looked up on first use: registering the event types starts JFR's metadata layer and the
+    // thread bean loads java.management, which would slow down every cold compile without --stats
+    private static final class Events {
+        static final EventType PHASE = EventType.getEventType(PhaseEvent.class);
+        static final EventType FILE = EventType.getEventType(FileEvent.class);
+    }
+
+    private static final class Threads {
+        static final com.sun.management.ThreadMXBean BEAN = threads();
+    }
+
+    public final File source;
+    private final long[] nanos = new long[Phase.values().length];
+    private long tokens;
+    private long commands;
+    private long allocatedBytes;
+    private long totalNanos;
+
+    private final boolean recording;
+    private Phase phase;
+    private long phaseStart;
+    private PhaseEvent event;
+    private long segmentStart;
+    private long segmentAllocated;
+
+    private CompileStats(File source, boolean recording) {
+        this.source = source;
+        this.recording = recording;
+    }
+
+    // Starts measuring a file, or returns null when nobody would look at the numbers
+    public static CompileStats start(File source, CompilerOptions options) {
+        // Until something starts a recording, FlightRecorder is not initialized and the events stay untouched
+        boolean recording = FlightRecorder.isInitialized() && (Events.PHASE.isEnabled() || Events.FILE.isEnabled());
+        if (!options.collectsStats() && !recording) return null;
+        CompileStats stats = new CompileStats(source, recording);
+        stats.resume();
+        return stats;
+    }
+
+    // Measurement can stop and continue on another thread, e.g. when whole-program analysis
+    // parses a file on the calling thread and a worker generates its code later
+    void resume() {
+        segmentStart = System.nanoTime();
+        segmentAllocated = allocated();
+    }
+
+    void pause() {
+        totalNanos += System.nanoTime() - segmentStart;
+        long now = allocated();
+        if (now >= 0 && segmentAllocated >= 0) allocatedBytes += now - segmentAllocated;
+    }
+
+    void begin(Phase phase) {
+        this.phase = phase;
+        if (recording && Events.PHASE.isEnabled()) {
+            event = new PhaseEvent();
+            event.source = source.getPath();
+            event.phase = phase.label;
+            event.begin();
+        }
+        phaseStart = System.nanoTime();
+    }
+
+    void end() {
+        nanos[phase.ordinal()] += System.nanoTime() - phaseStart;
+        if (event != null) {
+            event.commit();
+            event = null;
+        }
+    }
+
+    void addTokens(long count) {
+        tokens += count;
+    }
+
+    // Wraps the writer that receives the final commands (after the peephole stage) to count them
+    VMWriter counting(VMWriter writer) {
+        return new VMWriter() {
+            public void writePush(String segment, int index) { commands++; writer.writePush(segment, index); }
+            public void writePop(String segment, int index) { commands++; writer.writePop(segment, index); }
+            public void writeArithmetic(String command) { commands++; writer.writeArithmetic(command); }
+            public void writeLabel(String label) { commands++; writer.writeLabel(label); }
+            public void writeGoto(String label) { commands++; writer.writeGoto(label); }
+            public void writeIf(String label) { commands++; writer.writeIf(label); }
+            public void writeCall(String name, int nArgs) { commands++; writer.writeCall(name, nArgs); }
+            public void writeFunction(String name, int nLocals) { commands++; writer.writeFunction(name, nLocals); }
+            public void writeReturn() { commands++; writer.writeReturn(); }
+            public void close() { writer.close(); }
+        };
+    }
+
+    // Ends the measurement of the file and commits its JFR event
+    void finish() {
+        pause();
+        if (recording && Events.FILE.isEnabled()) {
+            FileEvent file = new FileEvent();
+            file.source = source.getPath();
+            file.tokens = tokens;
+            file.commands = commands;
+            file.allocatedBytes = allocatedBytes;
+            file.read = nanos[Phase.READ.ordinal()];
+            file.stripComments = nanos[Phase.STRIP_COMMENTS.ordinal()];
+            file.lex = nanos[Phase.LEX.ordinal()];
+            file.parse = nanos[Phase.PARSE.ordinal()];
+            file.optimize = nanos[Phase.OPTIMIZE.ordinal()];
+            file.generate = nanos[Phase.GENERATE.ordinal()];
+            file.write = nanos[Phase.WRITE.ordinal()];
+            file.commit();
+        }
+    }
+
+    public long nanos(Phase phase) {
+        return nanos[phase.ordinal()];
+    }
+
+    public long totalNanos() {
+        return totalNanos;
+    }
+
+    public long tokens() {
+        return tokens;
+    }
+
+    public long commands() {
+        return commands;
+    }
+
+    // -1 when the JVM cannot measure per-thread allocation
+    public long allocatedBytes() {
+        return segmentAllocated >= 0 ? allocatedBytes : -1;
+    }
+
+    // Summary for the end of a run: one row per file in milliseconds, then the totals
+    public static String table(List<CompileStats> files) {
+        StringBuilder out = new StringBuilder();
+        int width = "Total".length();
+        for (CompileStats stats : files) width = Math.max(width, stats.source.getName().length());
+        out.append(String.format("%-" + width + "s", "File"));
+        for (Phase phase : Phase.values()) out.append(String.format(" %9s", phase.label));
+        out.append(String.format(" %9s %9s %9s %11s%n", "total", "tokens", "commands", "alloc KB"));
+
+        long[] sum = new long[Phase.values().length];
+        long total = 0, tokens = 0, commands = 0, allocated = 0;
+        for (CompileStats stats : files) {
+            row(out, width, stats.source.getName(), stats.nanos, stats.totalNanos, stats.tokens, stats.commands,
+                    stats.allocatedBytes());
+            for (int i = 0; i < sum.length; i++) sum[i] += stats.nanos[i];
+            total += stats.totalNanos;
+            tokens += stats.tokens;
+            commands += stats.commands;
+            allocated += Math.max(0, stats.allocatedBytes());
+        }
+        if (files.size() > 1) {
+            row(out, width, "Total", sum, total, tokens, commands, allocated);
+        }
+        return out.toString();
+    }
+
+    private static void row(StringBuilder out, int width, String name, long[] nanos, long total, long tokens,
+                            long commands, long allocated) {
+        out.append(String.format("%-" + width + "s", name));
+        for (long phase : nanos) out.append(String.format(" %9.2f", phase / 1e6));
+        out.append(String.format(" %9.2f %9d %9d %11s%n", total / 1e6, tokens, commands,
+                allocated >= 0 ? String.valueOf(allocated / 1024) : "n/a"));
+    }
+
+    // Machine-readable report: phase times in nanoseconds, one object per file
+    public static String json(List<CompileStats> files) {
+        StringBuilder out = new StringBuilder("{\n  \"files\": [");
+        for (int f = 0; f < files.size(); f++) {
+            CompileStats stats = files.get(f);
+            out.append(f == 0 ? "\n" : ",\n").append("    {\"source\": \"");
+            for (char c : stats.source.getPath().toCharArray()) {
+                if (c < 0x20) {
+                    out.append(String.format("\\u%04x", (int) c)); // control characters are not allowed raw
+                } else {
+                    if (c == '"' || c == '\\') out.append('\\');
+                    out.append(c);
+                }
+            }
+            out.append("\", \"phases\": {");
+            for (Phase phase : Phase.values()) {
+                out.append(phase.ordinal() == 0 ? "" : ", ")
+                        .append('"').append(phase.label).append("\": ").append(stats.nanos[phase.ordinal()]);
+            }
+            out.append("}, \"totalNanos\": ").append(stats.totalNanos)
+                    .append(", \"tokens\": ").append(stats.tokens)
+                    .append(", \"commands\": ").append(stats.commands)
+                    .append(", \"allocatedBytes\": ").append(stats.allocatedBytes()).append('}');
+        }
+        return out.append(files.isEmpty() ? "]\n}\n" : "\n  ]\n}\n").toString();
+    }
+
+    private long allocated() {
+        return Threads.BEAN != null ? Threads.BEAN.getCurrentThreadAllocatedBytes() : -1;
+    }
+
+    private static com.sun.management.ThreadMXBean threads() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads
+                && threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+            return threads;
+        }
+        return null;
+    }
+}
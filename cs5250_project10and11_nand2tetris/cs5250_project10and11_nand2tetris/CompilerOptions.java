@@ -0,0 +1,181 @@
+package cs5250_project10and11_nand2tetris;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
+// Settings for one compiler run, filled from command-line flags or REPL commands.
+public class CompilerOptions {
+    public Tokenizer.Lexing lexing = Tokenizer.Lexing.SCANNER;
+    public int jobs = 1;                    // worker count; 1 compiles on the calling thread, 0 uses every core
+    public boolean virtualThreads = false;  // run workers on virtual threads when the JVM has them
+    public boolean recursive = false;       // also collect .jack files from subdirectories
+    public boolean reportHeap = false;      // print peak heap per file (only meaningful with one worker)
+    public boolean verbose = false;         // print per-subroutine progress from the compilation engine
+    public boolean incremental = false;     // skip files whose sources and outputs match the build manifest
+    public boolean binary = false;          // write compact .vmb files instead of text .vm
+    public CompilationEngine.Pipeline pipeline = CompilationEngine.Pipeline.SINGLE_PASS;
+    public boolean fold = false;            // fold constant expressions (runs on the AST pipeline)
+    public int multiplyLimit = 0;           // lower x * constant to adds when it takes at most this many commands
+    public boolean poolStrings = false;     // build each string literal once per class and reuse it
+    public boolean wholeProgram = false;    // drop subroutines unreachable from Main.main (per directory)
+    public int inlineBudget = 0;            // inline getters, setters and pure functions up to this many syntax nodes
+    public EnumSet<PeepholeVMWriter.Rule> peephole = EnumSet.noneOf(PeepholeVMWriter.Rule.class);
+    public EnumSet<JackCompiler.Output> outputs = EnumSet.of(JackCompiler.Output.VM);
+    public boolean stats = false;           // print per-file phase times, token and command counts after the run
+    public File statsJson = null;           // also write them to this file as JSON
+    public boolean asm = false;             // write one linked Hack .asm program per directory instead of .vm files
+    public File osDirectory = null;         // .vm files of the OS classes linked into --asm programs
+
+    public static final String USAGE = String.join("\n",
+            "Usage: Main [options] <file.jack|directory>...",
+            "       Main --daemon | --stop-daemon [--port N]",
+            "       Main --use-daemon [--port N] [options] <file.jack|directory>...",
+            "       Main --vmb-to-vm <file.vmb>...",
+            "       Main --run [--profile] [--max-steps N] [--input FILE] [options] <directory|file.vm|file.vmb>...",
+            "                        compile a program (when it has .jack files), then run it in the VM interpreter",
+            "       Main --generate <directory> [--seed N] [--classes N] [--size BYTES] ... (see --generate --help)",
+            "  -j, --jobs N          compile with N workers (0 = one per core, default 1)",
+            "  --virtual-threads     run the workers on virtual threads",
+            "  -r, --recursive       include .jack files in subdirectories",
+            "  --lexer NAME          scanner (default), regex or streaming",
+            "  --heap                report peak heap per file",
+            "  -i, --incremental     only recompile changed files (keeps a .jackc-manifest per directory)",
+            "  --vmb                 write binary .vmb files instead of .vm",
+            "  --asm                 write one Hack assembly program per directory (Dir/Dir.asm) instead of .vm files,",
+            "                        linking in the .vm files of classes that have no .jack source there",
+            "  --os DIR              also link the OS classes from the .vm files in DIR into --asm programs",
+            "  --pipeline NAME       single (default): emit VM code while parsing; ast: build a syntax tree first",
+            "  --fold                fold constant expressions and simplify x+0, x*1, ~~x and the like",
+            "  --strength-reduce N   replace * and / by constants with adds when that takes at most N commands",
+            "  --pool-strings        build each distinct string literal once and reuse it (literals must not be modified)",
+            "  --whole-program       omit subroutines that nothing reachable from Main.main (or Sys.init) calls",
+            "  --inline N            expand calls to getters, setters and pure functions of up to N nodes in place",
+            "  --peephole RULES      optimize the VM output with 'all' or a comma-separated list of: invert-if,",
+            "                        unused-labels, double-not, push-pop, jump-threading, constant-branch, dead-code",
+            "  --emit OUTPUTS        write 'all' or a comma-separated list of: tokens (XT.xml), xml (X.xml), vm",
+            "                        (default vm); the source is lexed once for all of them",
+            "  --stats               print time per phase (read, lex, parse, generate, write...), tokens, VM commands",
+            "                        and allocated bytes for each file after the run",
+            "  --stats-json FILE     write the same numbers to FILE as JSON",
+            "  -v, --verbose         print each subroutine as it is compiled");
+
+    public CompilerOptions copy() {
+        CompilerOptions copy = new CompilerOptions();
+        copy.lexing = lexing;
+        copy.jobs = jobs;
+        copy.virtualThreads = virtualThreads;
+        copy.recursive = recursive;
+        copy.reportHeap = reportHeap;
+        copy.verbose = verbose;
+        copy.incremental = incremental;
+        copy.binary = binary;
+        copy.pipeline = pipeline;
+        copy.fold = fold;
+        copy.multiplyLimit = multiplyLimit;
+        copy.poolStrings = poolStrings;
+        copy.wholeProgram = wholeProgram;
+        copy.inlineBudget = inlineBudget;
+        copy.peephole = EnumSet.copyOf(peephole);
+        copy.outputs = EnumSet.copyOf(outputs);
+        copy.stats = stats;
+        copy.statsJson = statsJson;
+        copy.asm = asm;
+        copy.osDirectory = osDirectory;
+        return copy;
+    }
+
+    // Applies the flags in args and returns the remaining (path) arguments.
+    // Throws IllegalArgumentException for unknown flags or bad values.
+    public List<String> parse(String[] args) {
+        List<String> paths = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "-j", "--jobs" -> jobs = parseCount(arg, value(args, ++i, arg));
+                case "--virtual-threads" -> virtualThreads = true;
+                case "-r", "--recursive" -> recursive = true;
+                case "--lexer" -> lexing = parseLexing(value(args, ++i, arg));
+                case "--heap" -> reportHeap = true;
+                case "-v", "--verbose" -> verbose = true;
+                case "-i", "--incremental" -> incremental = true;
+                case "--vmb" -> binary = true;
+                case "--pipeline" -> pipeline = parsePipeline(value(args, ++i, arg));
+                case "--fold" -> fold = true;
+                case "--strength-reduce" -> multiplyLimit = parseCount(arg, value(args, ++i, arg));
+                case "--pool-strings" -> poolStrings = true;
+                case "--whole-program" -> wholeProgram = true;
+                case "--inline" -> inlineBudget = parseCount(arg, value(args, ++i, arg));
+                case "--peephole" -> peephole = PeepholeVMWriter.parseRules(value(args, ++i, arg));
+                case "--emit" -> outputs = JackCompiler.Output.parse(value(args, ++i, arg));
+                case "--stats" -> stats = true;
+                case "--stats-json" -> statsJson = new File(value(args, ++i, arg));
+                case "--asm" -> asm = true;
+                case "--os" -> osDirectory = new File(value(args, ++i, arg));
+                default -> {
+                    if (arg.startsWith("-")) {
+                        throw new IllegalArgumentException("Unknown option: " + arg);
+                    }
+                    paths.add(arg);
+                }
+            }
+        }
+        return paths;
+    }
+
+    // Identifies the options that change generated code; an incremental build
+    // recompiles everything when this differs from the one in the manifest.
+    public String outputFingerprint() {
+        return (binary ? "vmb" : "vm") + (fold ? ";fold" : "")
+                + (multiplyLimit > 0 ? ";strength=" + multiplyLimit : "") + (poolStrings ? ";pool" : "") + (peephole.isEmpty() ? "" : ";peephole=" + peephole);
+    }
+
+    // Whether code is generated from a syntax tree: needed by every AST pass
+    public boolean usesAst() {
+        return pipeline == CompilationEngine.Pipeline.AST || fold || multiplyLimit > 0 || poolStrings;
+    }
+
+    // Whether per-phase measurements are reported at the end of a run
+    public boolean collectsStats() {
+        return stats || statsJson != null;
+    }
+
+    // Resolves jobs = 0 to the number of available cores
+    public int workerCount() {
+        return jobs > 0 ? jobs : Runtime.getRuntime().availableProcessors();
+    }
+
+    static Tokenizer.Lexing parseLexing(String name) {
+        try {
+            return Tokenizer.Lexing.valueOf(name.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown lexer '" + name + "', expected scanner, regex or streaming");
+        }
+    }
+
+    static CompilationEngine.Pipeline parsePipeline(String name) {
+        switch (name.trim().toLowerCase()) {
+            case "single": return CompilationEngine.Pipeline.SINGLE_PASS;
+            case "ast": return CompilationEngine.Pipeline.AST;
+            default: throw new IllegalArgumentException("Unknown pipeline '" + name + "', expected single or ast");
+        }
+    }
+
+    static int parseCount(String option, String value) {
+        try {
+            int count = Integer.parseInt(value.trim());
+            if (count >= 0) return count;
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new IllegalArgumentException(option + " expects a non-negative number, got '" + value + "'");
+    }
+
+    static String value(String[] args, int index, String option) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException(option + " needs a value");
+        }
+        return args[index];
+    }
+}
@@ -0,0 +1,268 @@
+package cs5250_project10and11_nand2tetris;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import cs5250_project10and11_nand2tetris.Ast.*;
+import cs5250_project10and11_nand2tetris.Tokenizer.Keyword;
+
+// AST pass that evaluates constant subexpressions at compile time and applies algebraic
+// identities, so e.g. 2 * 3 + x no longer calls Math.multiply at run time.
+//
+// Arithmetic follows the Hack platform: 16-bit two's complement with wraparound, comparisons
+// yield -1 (true) or 0 (false), and division truncates toward zero like Math.divide.
+// Division by zero is left for run time so the OS still reports it. An operand is only dropped
+// (x * 0, x & 0, x | -1) when evaluating it has no side effects, i.e. it contains no call.
+public class ConstantFolder implements Ast.Visitor<Ast.Node> {
+    private int rewrites = 0;
+
+    public ClassDec fold(ClassDec tree) {
+        return (ClassDec) tree.accept(this);
+    }
+
+    // Number of expressions replaced so far
+    public int rewrites() {
+        return rewrites;
+    }
+
+    // Declarations and statements: rebuild with folded expressions
+
+    @Override
+    public Node visitClass(ClassDec node) {
+        List<SubroutineDec> subroutines = new ArrayList<>(node.subroutines().size());
+        for (SubroutineDec subroutine : node.subroutines()) {
+            subroutines.add((SubroutineDec) subroutine.accept(this));
+        }
+        return new ClassDec(node.name(), node.vars(), subroutines);
+    }
+
+    @Override
+    public Node visitSubroutine(SubroutineDec node) {
+        return new SubroutineDec(node.kind(), node.returnType(), node.name(), node.parameters(), node.locals(),
+                statements(node.body()));
+    }
+
+    private List<Statement> statements(List<Statement> statements) {
+        if (statements == null) return null;
+        List<Statement> folded = new ArrayList<>(statements.size());
+        for (Statement statement : statements) {
+            folded.add((Statement) statement.accept(this));
+        }
+        return folded;
+    }
+
+    private Expression fold(Expression expression) {
+        return expression == null ? null : (Expression) expression.accept(this);
+    }
+
+    @Override
+    public Node visitLet(Let node) {
+        return new Let(node.name(), fold(node.index()), fold(node.value()));
+    }
+
+    @Override
+    public Node visitIf(If node) {
+        return new If(fold(node.condition()), statements(node.thenBranch()), statements(node.elseBranch()));
+    }
+
+    @Override
+    public Node visitWhile(While node) {
+        return new While(fold(node.condition()), statements(node.body()));
+    }
+
+    @Override
+    public Node visitDo(Do node) {
+        return new Do((Call) node.call().accept(this));
+    }
+
+    @Override
+    public Node visitReturn(Return node) {
+        return new Return(fold(node.value()));
+    }
+
+    // Expressions
+
+    @Override
+    public Node visitIntegerConstant(IntegerConstant node) {
+        return node;
+    }
+
+    @Override
+    public Node visitStringConstant(StringConstant node) {
+        return node;
+    }
+
+    @Override
+    public Node visitKeywordConstant(KeywordConstant node) {
+        return node;
+    }
+
+    @Override
+    public Node visitVarRef(VarRef node) {
+        return node;
+    }
+
+    @Override
+    public Node visitArrayRef(ArrayRef node) {
+        return new ArrayRef(node.name(), fold(node.index()));
+    }
+
+    @Override
+    public Node visitCall(Call node) {
+        List<Expression> arguments = new ArrayList<>(node.arguments().size());
+        for (Expression argument : node.arguments()) {
+            arguments.add(fold(argument));
+        }
+        return new Call(node.receiver(), node.name(), arguments);
+    }
+
+    @Override
+    public Node visitUnary(Unary node) {
+        Unary unary = new Unary(node.op(), fold(node.operand()));
+        Integer value = valueOf(unary);
+        if (value != null) {
+            Expression folded = constant(value);
+            if (folded.equals(unary)) return unary; // already in canonical form, e.g. -5
+            rewrites++;
+            return folded;
+        }
+        Expression operand = unary.operand();
+        // --x and ~~x
+        if (operand instanceof Unary inner && inner.op() == node.op()) {
+            rewrites++;
+            return inner.operand();
+        }
+        return unary;
+    }
+
+    @Override
+    public Node visitBinary(Binary node) {
+        Expression left = fold(node.left());
+        Expression right = fold(node.right());
+        Integer l = valueOf(left);
+        Integer r = valueOf(right);
+
+        if (l != null && r != null) {
+            Integer result = evaluate(l, node.op(), r);
+            if (result != null) {
+                rewrites++;
+                return constant(result);
+            }
+        }
+
+        Expression simplified = simplify(left, node.op(), right, l, r);
+        if (simplified != null) {
+            rewrites++;
+            // A new negation may cancel one inside its operand
+            return simplified instanceof Unary ? (Expression) simplified.accept(this) : simplified;
+        }
+        return new Binary(left, node.op(), right);
+    }
+
+    // Value of a constant operation, or null when it must be left to run time
+    private static Integer evaluate(int l, char op, int r) {
+        switch (op) {
+            case '+': return wrap(l + r);
+            case '-': return wrap(l - r);
+            case '*': return wrap(l * r);
+            case '/':
+                // Math.divide reports division by zero; it also cannot negate -32768
+                if (r == 0 || l == -32768 || r == -32768) return null;
+                return wrap(l / r);
+            case '&': return l & r;
+            case '|': return l | r;
+            case '<': return l < r ? -1 : 0;
+            case '>': return l > r ? -1 : 0;
+            case '=': return l == r ? -1 : 0;
+            default: return null;
+        }
+    }
+
+    // Identity rules where one side is a known constant; null when none applies
+    private static Expression simplify(Expression left, char op, Expression right, Integer l, Integer r) {
+        switch (op) {
+            case '+':
+                if (isValue(r, 0)) return left;
+                if (isValue(l, 0)) return right;
+                break;
+            case '-':
+                if (isValue(r, 0)) return left;
+                if (isValue(l, 0)) return new Unary('-', right);
+                break;
+            case '*':
+                if (isValue(r, 1)) return left;
+                if (isValue(l, 1)) return right;
+                if (isValue(r, 0) && isPure(left) || isValue(l, 0) && isPure(right)) return constant(0);
+                if (isValue(r, -1)) return new Unary('-', left);
+                if (isValue(l, -1)) return new Unary('-', right);
+                break;
+            case '/':
+                if (isValue(r, 1)) return left;
+                break;
+            case '&':
+                if (isValue(r, -1)) return left;
+                if (isValue(l, -1)) return right;
+                if (isValue(r, 0) && isPure(left) || isValue(l, 0) && isPure(right)) return constant(0);
+                break;
+            case '|':
+                if (isValue(r, 0)) return left;
+                if (isValue(l, 0)) return right;
+                if (isValue(r, -1) && isPure(left) || isValue(l, -1) && isPure(right)) return constant(-1);
+                break;
+            default:
+                break;
+        }
+        return null;
+    }
+
+    private static boolean isValue(Integer value, int expected) {
+        return value != null && value == expected;
+    }
+
+    // The 16-bit value of a constant expression, or null when it is not constant
+    static Integer valueOf(Expression expression) {
+        if (expression instanceof IntegerConstant c) {
+            return wrap(c.value());
+        }
+        if (expression instanceof KeywordConstant k) {
+            if (k.keyword() == Keyword.TRUE) return -1;
+            if (k.keyword() == Keyword.FALSE || k.keyword() == Keyword.NULL) return 0;
+            return null;
+        }
+        if (expression instanceof Unary u) {
+            Integer operand = valueOf(u.operand());
+            if (operand == null) return null;
+            return u.op() == '-' ? wrap(-operand) : wrap(~operand);
+        }
+        return null;
+    }
+
+    // Shortest expression for a 16-bit value. The VM only has non-negative constants, so a
+    // negative value becomes push n; neg, and -32768 (which has no positive counterpart)
+    // becomes push 32767; not.
+    static Expression constant(int value) {
+        if (value >= 0) return new IntegerConstant(value);
+        if (value == -32768) return new Unary('~', new IntegerConstant(32767));
+        return new Unary('-', new IntegerConstant(-value));
+    }
+
+    // True when evaluating the expression cannot have side effects
+    static boolean isPure(Expression expression) {
+        if (expression instanceof Call) return false;
+        if (expression instanceof ArrayRef a) return isPure(a.index());
+        if (expression instanceof Unary u) return isPure(u.operand());
+        if (expression instanceof Binary b) {
+            // Math.divide halts the program on division by zero
+            if (b.op() == '/') {
+                Integer divisor = valueOf(b.right());
+                if (divisor == null || divisor == 0) return false;
+            }
+            return isPure(b.left()) && isPure(b.right());
+        }
+        return true;
+    }
+
+    static int wrap(int value) {
+        return (short) value;
+    }
+}
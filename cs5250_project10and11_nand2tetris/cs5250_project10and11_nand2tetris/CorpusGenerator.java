@@ -0,0 +1,336 @@
+package cs5250_project10and11_nand2tetris;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.*;
+
+// Generates seeded, valid Jack programs of any size for scaling and stress tests:
+//
+//   Main.jack        constructs one object of every generated class and calls its methods
+//   GenK.jack        fields and statics, a constructor, then subroutines alternating between
+//                    leaf functions (no calls, return an int) and methods that may call any
+//                    leaf function of any class
+//
+// Only methods call, and only leaves, so programs never recurse and finish quickly when run.
+// Loops count a dedicated local up to a small bound, divisors are non-zero constants and
+// every variable is declared, so the output compiles and runs on the standard OS.
+//
+// Each class is generated from its own Random seeded from the settings' seed and the class
+// index, so the same settings always produce byte-identical files, and class K does not change
+// when the class count does.
+public class CorpusGenerator {
+    public static class Settings {
+        public long seed = 1;
+        public int classes = 4;
+        public int subroutines = 8;         // per class, unless bytesPerClass is set
+        public int variables = 4;           // fields, statics, parameters and locals per scope
+        public int statements = 8;          // top-level statements per subroutine
+        public int depth = 3;               // maximum expression nesting
+        public double stringDensity = 0.1;  // chance that a statement prints a string literal
+        public long bytesPerClass = 0;      // keep adding subroutines (at least `subroutines`) until a class is this large
+
+        public static final String USAGE = String.join("\n",
+                "Usage: Main --generate <directory> [generator options]",
+                "  --seed N              random seed (default 1)",
+                "  --classes N           generated classes besides Main (default 4)",
+                "  --subroutines N       subroutines per class (default 8)",
+                "  --vars N              fields, statics, parameters and locals per scope (default 4)",
+                "  --statements N        top-level statements per subroutine (default 8)",
+                "  --depth N             maximum expression depth (default 3)",
+                "  --strings P           fraction of statements that print a string literal (default 0.1)",
+                "  --size BYTES          grow each class to about this size instead, e.g. 500K or 4M");
+
+        // Applies the flags in args and returns the remaining (path) arguments.
+        // Throws IllegalArgumentException for unknown flags or bad values.
+        public List<String> parse(String[] args) {
+            List<String> paths = new ArrayList<>();
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                switch (arg) {
+                    case "--seed" -> seed = parseSeed(CompilerOptions.value(args, ++i, arg));
+                    case "--classes" -> classes = CompilerOptions.parseCount(arg, CompilerOptions.value(args, ++i, arg));
+                    case "--subroutines" -> subroutines = CompilerOptions.parseCount(arg, CompilerOptions.value(args, ++i, arg));
+                    case "--vars" -> variables = CompilerOptions.parseCount(arg, CompilerOptions.value(args, ++i, arg));
+                    case "--statements" -> statements = CompilerOptions.parseCount(arg, CompilerOptions.value(args, ++i, arg));
+                    case "--depth" -> depth = CompilerOptions.parseCount(arg, CompilerOptions.value(args, ++i, arg));
+                    case "--strings" -> stringDensity = parseFraction(arg, CompilerOptions.value(args, ++i, arg));
+                    case "--size" -> bytesPerClass = parseSize(arg, CompilerOptions.value(args, ++i, arg));
+                    default -> {
+                        if (arg.startsWith("-")) {
+                            throw new IllegalArgumentException("Unknown option: " + arg);
+                        }
+                        paths.add(arg);
+                    }
+                }
+            }
+            return paths;
+        }
+
+        private static long parseSeed(String value) {
+            try {
+                return Long.parseLong(value.trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("--seed expects a number, got '" + value + "'");
+            }
+        }
+
+        private static double parseFraction(String option, String value) {
+            try {
+                double fraction = Double.parseDouble(value.trim());
+                if (fraction >= 0 && fraction <= 1) return fraction;
+            } catch (NumberFormatException e) {
+                // Reported below
+            }
+            throw new IllegalArgumentException(option + " expects a number from 0 to 1, got '" + value + "'");
+        }
+
+        // Byte count with an optional K or M suffix
+        static long parseSize(String option, String value) {
+            String text = value.trim().toUpperCase();
+            long unit = 1;
+            if (text.endsWith("K")) unit = 1024;
+            if (text.endsWith("M")) unit = 1024 * 1024;
+            if (unit > 1) text = text.substring(0, text.length() - 1);
+            return CompilerOptions.parseCount(option, text) * unit;
+        }
+    }
+
+    private static final String[] OPERATORS = {"+", "-", "*", "/", "&", "|"};
+    private static final String[] COMPARISONS = {"<", ">", "="};
+    private static final String[] WORDS = {"score", "level", "paddle", "ball", "wall", "hit", "game over",
+            "x=", "y=", "<&>", "speed", "ready"};
+
+    private final Settings settings;
+
+    public CorpusGenerator(Settings settings) {
+        this.settings = settings;
+    }
+
+    public static String className(int index) {
+        return "Gen" + index;
+    }
+
+    // Class name -> source, Main first
+    public Map<String, String> generate() {
+        Map<String, String> sources = new LinkedHashMap<>();
+        sources.put("Main", mainClass());
+        for (int k = 0; k < settings.classes; k++) {
+            sources.put(className(k), generateClass(k));
+        }
+        return sources;
+    }
+
+    // Writes every class into directory as Name.jack and returns the files
+    public List<File> write(File directory) throws IOException {
+        Files.createDirectories(directory.toPath());
+        List<File> files = new ArrayList<>();
+        for (Map.Entry<String, String> source : generate().entrySet()) {
+            File file = new File(directory, source.getKey() + ".jack");
+            Files.writeString(file.toPath(), source.getValue());
+            files.add(file);
+        }
+        return files;
+    }
+
+    public String mainClass() {
+        StringBuilder out = new StringBuilder();
+        out.append("class Main {\n");
+        out.append("    function void main() {\n");
+        for (int k = 0; k < settings.classes; k++) {
+            out.append("        var ").append(className(k)).append(" g").append(k).append(";\n");
+        }
+        for (int k = 0; k < settings.classes; k++) {
+            out.append("        let g").append(k).append(" = ").append(className(k)).append(".new();\n");
+            int methods = subroutineCount(k);
+            for (int s = 1; s < methods; s += 2) {
+                out.append("        do g").append(k).append(".sub").append(s).append('(');
+                for (int p = 0; p < settings.variables; p++) {
+                    out.append(p == 0 ? "" : ", ").append(p + 1);
+                }
+                out.append(");\n");
+            }
+        }
+        out.append("        return;\n");
+        out.append("    }\n");
+        out.append("}\n");
+        return out.toString();
+    }
+
+    // Subroutines of class k; with a size target this is only known after generating the class
+    private int subroutineCount(int k) {
+        if (settings.bytesPerClass <= 0) return settings.subroutines;
+        return new ClassWriter(k).write().subroutines;
+    }
+
+    public String generateClass(int k) {
+        return new ClassWriter(k).write().out.toString();
+    }
+
+    // Writes one class; also remembers how many subroutines it got
+    private class ClassWriter {
+        final int index;
+        final Random random;
+        final StringBuilder out = new StringBuilder();
+        int subroutines;
+
+        // Scope of the subroutine being written
+        boolean inMethod;
+        List<String> readable = new ArrayList<>();   // parameters, locals, statics and (in methods) fields
+        List<String> writable = new ArrayList<>();   // the same without the loop counters
+
+        ClassWriter(int index) {
+            this.index = index;
+            this.random = new Random(settings.seed * 1_000_003L + index);
+        }
+
+        ClassWriter write() {
+            String name = className(index);
+            int vars = settings.variables;
+            out.append("// Generated by CorpusGenerator, seed ").append(settings.seed).append('\n');
+            out.append("class ").append(name).append(" {\n");
+            if (vars > 0) {
+                out.append("    field int ").append(list("f", vars)).append(";\n");
+                out.append("    static int ").append(list("s", vars)).append(";\n");
+            }
+            out.append('\n');
+            out.append("    constructor ").append(name).append(" new() {\n");
+            for (int v = 0; v < vars; v++) {
+                out.append("        let f").append(v).append(" = ").append(random.nextInt(100)).append(";\n");
+            }
+            out.append("        return this;\n");
+            out.append("    }\n");
+
+            int target = settings.bytesPerClass > 0 ? Integer.MAX_VALUE : settings.subroutines;
+            for (int s = 0; s < target; s++) {
+                if (s >= settings.subroutines && out.length() >= settings.bytesPerClass) break;
+                out.append('\n');
+                subroutine(s);
+                subroutines = s + 1;
+            }
+            out.append("}\n");
+            return this;
+        }
+
+        // Even subroutines are leaf functions, odd ones methods that call leaves
+        private void subroutine(int s) {
+            int vars = settings.variables;
+            inMethod = s % 2 == 1;
+            readable.clear();
+            writable.clear();
+            for (int v = 0; v < vars; v++) {
+                readable.add("a" + v);
+                readable.add("l" + v);
+                readable.add("s" + v);
+                if (inMethod) readable.add("f" + v);
+            }
+            writable.addAll(readable);
+
+            out.append("    ").append(inMethod ? "method void " : "function int ").append("sub").append(s).append('(');
+            for (int v = 0; v < vars; v++) {
+                out.append(v == 0 ? "" : ", ").append("int a").append(v);
+            }
+            out.append(") {\n");
+            out.append("        var int ").append(vars > 0 ? list("l", vars) + ", " : "").append("i0, i1;\n");
+            for (int n = 0; n < settings.statements; n++) {
+                statement(2, 0);
+            }
+            out.append("        return").append(inMethod ? "" : " " + expression(settings.depth)).append(";\n");
+            out.append("    }\n");
+        }
+
+        private void statement(int indent, int nesting) {
+            String pad = "    ".repeat(indent);
+            if (random.nextDouble() < settings.stringDensity) {
+                out.append(pad).append("do Output.printString(\"")
+                        .append(WORDS[random.nextInt(WORDS.length)]).append("\");\n");
+                return;
+            }
+            // Past three levels only plain statements, so nesting stays bounded
+            int choice = random.nextInt(nesting < 3 ? 10 : 6);
+            if (choice < 4 && !writable.isEmpty() || choice < 6 && !inMethod) {
+                if (writable.isEmpty()) {
+                    out.append(pad).append("do Output.printInt(").append(expression(settings.depth)).append(");\n");
+                    return;
+                }
+                out.append(pad).append("let ").append(pick(writable)).append(" = ")
+                        .append(expression(settings.depth)).append(";\n");
+            } else if (choice < 6) {
+                out.append(pad).append("do ").append(leafCall(settings.depth - 1)).append(";\n");
+            } else if (choice < 8 || nesting >= 2) {
+                out.append(pad).append("if (").append(condition()).append(") {\n");
+                block(indent + 1, nesting + 1);
+                if (random.nextBoolean()) {
+                    out.append(pad).append("} else {\n");
+                    block(indent + 1, nesting + 1);
+                }
+                out.append(pad).append("}\n");
+            } else {
+                // Counted loop on a counter nothing else assigns; nested loops get different ones
+                String counter = "i" + nesting;
+                writable.remove(counter);
+                out.append(pad).append("let ").append(counter).append(" = 0;\n");
+                out.append(pad).append("while (").append(counter).append(" < ").append(1 + random.nextInt(3)).append(") {\n");
+                block(indent + 1, nesting + 1);
+                out.append(pad).append("    let ").append(counter).append(" = ").append(counter).append(" + 1;\n");
+                out.append(pad).append("}\n");
+                readable.add(counter);
+            }
+        }
+
+        private void block(int indent, int nesting) {
+            int count = 1 + random.nextInt(3);
+            for (int n = 0; n < count; n++) statement(indent, nesting);
+        }
+
+        private String condition() {
+            return "(" + expression(settings.depth - 1) + ") " + COMPARISONS[random.nextInt(COMPARISONS.length)]
+                    + " " + term(settings.depth - 1);
+        }
+
+        private String expression(int depth) {
+            StringBuilder expression = new StringBuilder(term(depth));
+            int operators = depth <= 0 ? 0 : random.nextInt(3);
+            for (int n = 0; n < operators; n++) {
+                String op = OPERATORS[random.nextInt(OPERATORS.length)];
+                // Divide only by non-zero constants so generated programs cannot fail at run time
+                String right = op.equals("/") ? String.valueOf(1 + random.nextInt(9)) : term(depth - 1);
+                expression.append(' ').append(op).append(' ').append(right);
+            }
+            return expression.toString();
+        }
+
+        private String term(int depth) {
+            int choice = random.nextInt(depth <= 0 ? 2 : 6);
+            if (choice == 0 || readable.isEmpty()) return String.valueOf(random.nextInt(depth <= 0 ? 1000 : 32));
+            if (choice == 1) return pick(readable);
+            if (choice == 2) return "(" + expression(depth - 1) + ")";
+            if (choice == 3) return (random.nextBoolean() ? "-" : "~") + term(depth - 1);
+            if (choice == 4 && inMethod) return leafCall(depth - 1);
+            return pick(readable);
+        }
+
+        // Call to a leaf function of this class or an earlier one; all arguments are expressions
+        private String leafCall(int depth) {
+            int target = random.nextInt(index + 1);
+            int leaves = target == index ? Math.max(1, (subroutines + 1) / 2) : Math.max(1, (settings.subroutines + 1) / 2);
+            StringBuilder call = new StringBuilder(className(target)).append(".sub").append(2 * random.nextInt(leaves)).append('(');
+            for (int v = 0; v < settings.variables; v++) {
+                call.append(v == 0 ? "" : ", ").append(expression(Math.max(0, depth)));
+            }
+            return call.append(')').toString();
+        }
+
+        private String pick(List<String> names) {
+            return names.get(random.nextInt(names.size()));
+        }
+
+        private String list(String prefix, int count) {
+            StringBuilder names = new StringBuilder();
+            for (int n = 0; n < count; n++) {
+                names.append(n == 0 ? "" : ", ").append(prefix).append(n);
+            }
+            return names.toString();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package cs5250_project10and11_nand2tetris;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+
+// Measures the peak heap used while compiling one file.
+// Collects first so the baseline is live data only, then reads the peak of every heap pool.
+// The sum of pool peaks slightly overstates the true peak, but it grows with whatever a compile
+// keeps reachable, which is what we want to compare between tokenizer modes.
+final class HeapProbe {
+    private final long baseline;
+
+    private HeapProbe(long baseline) {
+        this.baseline = baseline;
+    }
+
+    static HeapProbe start() {
+        System.gc();
+        long used = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+                used += pool.getUsage().getUsed();
+            }
+        }
+        return new HeapProbe(used);
+    }
+
+    long peakBytes() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return Math.max(0, peak - baseline);
+    }
+}
@@ -0,0 +1,134 @@
+package cs5250_project10and11_nand2tetris;
+
+import java.util.Arrays;
+
+// Intern table that gives every distinct identifier a small int ID, starting at 0.
+// The tokenizer interns identifiers straight from its character buffer, so a name that occurs
+// a thousand times is hashed and turned into a String once; after that the compiler passes
+// the ID around and the symbol table indexes arrays with it. Qualified names such as
+// "Main.main" are built once per pair of IDs and cached.
+//
+// A table belongs to one source file: each Tokenizer creates its own and the engine that
+// consumes the tokens uses it, so IDs stay as small as the file's vocabulary and nothing
+// outlives the compile. That also keeps it single-threaded.
+public final class Identifiers {
+    private String[] names = new String[256];
+    private int[] hashes = new int[256];
+    private int size = 0;
+    private int[] slots = new int[512];        // open addressing: ID + 1, or 0 when empty
+
+    private long[] qualifiedKeys = new long[256];
+    private String[] qualifiedNames = new String[256];
+    private int qualifiedSize = 0;
+
+    public int size() {
+        return size;
+    }
+
+    public String name(int id) {
+        return names[id];
+    }
+
+    // ID of the characters buf[start, start + length), adding them if they are new. The hash
+    // is the same as String.hashCode(), so intern(String) can use the String's cached hash.
+    public int intern(char[] buf, int start, int length) {
+        int hash = 0;
+        for (int i = start; i < start + length; i++) {
+            hash = 31 * hash + buf[i];
+        }
+        int mask = slots.length - 1;
+        for (int slot = mix(hash) & mask; ; slot = (slot + 1) & mask) {
+            int id = slots[slot] - 1;
+            if (id < 0) {
+                return add(new String(buf, start, length), hash, slot);
+            }
+            if (hashes[id] == hash && matches(names[id], buf, start, length)) {
+                return id;
+            }
+        }
+    }
+
+    public int intern(String name) {
+        int hash = name.hashCode();
+        int mask = slots.length - 1;
+        for (int slot = mix(hash) & mask; ; slot = (slot + 1) & mask) {
+            int id = slots[slot] - 1;
+            if (id < 0) {
+                return add(name, hash, slot);
+            }
+            if (hashes[id] == hash && names[id].equals(name)) {
+                return id;
+            }
+        }
+    }
+
+    // "Owner.member" for two IDs, built on first use
+    public String qualified(int owner, int member) {
+        long key = ((long) owner << 32) | (member & 0xffff_ffffL);
+        int mask = qualifiedKeys.length - 1;
+        for (int slot = mix(Long.hashCode(key)) & mask; ; slot = (slot + 1) & mask) {
+            String name = qualifiedNames[slot];
+            if (name == null) {
+                name = names[owner] + "." + names[member];
+                qualifiedKeys[slot] = key;
+                qualifiedNames[slot] = name;
+                if (++qualifiedSize * 2 > qualifiedKeys.length) growQualified();
+                return name;
+            }
+            if (qualifiedKeys[slot] == key) {
+                return name;
+            }
+        }
+    }
+
+    private int add(String name, int hash, int slot) {
+        if (size == names.length) {
+            names = Arrays.copyOf(names, size * 2);
+            hashes = Arrays.copyOf(hashes, size * 2);
+        }
+        int id = size++;
+        names[id] = name;
+        hashes[id] = hash;
+        slots[slot] = id + 1;
+        if (size * 2 > slots.length) rehash();
+        return id;
+    }
+
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        int mask = slots.length - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = mix(hashes[id]) & mask;
+            while (slots[slot] != 0) slot = (slot + 1) & mask;
+            slots[slot] = id + 1;
+        }
+    }
+
+    private void growQualified() {
+        long[] keys = qualifiedKeys;
+        String[] values = qualifiedNames;
+        qualifiedKeys = new long[keys.length * 2];
+        qualifiedNames = new String[keys.length * 2];
+        int mask = qualifiedKeys.length - 1;
+        for (int i = 0; i < keys.length; i++) {
+            if (values[i] == null) continue;
+            int slot = mix(Long.hashCode(keys[i])) & mask;
+            while (qualifiedNames[slot] != null) slot = (slot + 1) & mask;
+            qualifiedKeys[slot] = keys[i];
+            qualifiedNames[slot] = values[i];
+        }
+    }
+
+    private static boolean matches(String name, char[] buf, int start, int length) {
+        if (name.length() != length) return false;
+        for (int i = 0; i < length; i++) {
+            if (name.charAt(i) != buf[start + i]) return false;
+        }
+        return true;
+    }
+
+    // Spreads the high bits of a hash into the low ones used to pick a slot
+    private static int mix(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,110 @@
+package cs5250_project10and11_nand2tetris;
+
+import java.util.*;
+
+import cs5250_project10and11_nand2tetris.Ast.*;
+import cs5250_project10and11_nand2tetris.Tokenizer.Keyword;
+
+// Finds the subroutines of a directory that CodeGenerator may expand at their call sites
+// instead of emitting call/return:
+//
+//   getter   method T get() { return field; }
+//   setter   method void set(...) { let field = <pure expression>; return; }
+//   pure     function/method T f(...) { return <pure expression>; }
+//
+// A pure expression uses only constants, the parameters and operators; it has no calls and no
+// division that could fail, and every parameter appears exactly once, in declaration order, so
+// the arguments are still evaluated once each and in the same order as for a real call. Such
+// bodies make no calls themselves, so they can never be recursive. Bodies with more than
+// `budget` syntax nodes are left alone.
+public class Inliner {
+    public enum Kind { GETTER, SETTER, PURE }
+
+    // field is the callee's field index for GETTER and SETTER; value is the expression for SETTER and PURE
+    public record Candidate(Kind kind, boolean method, int field, List<String> parameters, Expression value) {
+    }
+
+    private final Map<String, Candidate> candidates = new HashMap<>();
+
+    public Inliner(Collection<ClassDec> program, int budget) {
+        for (ClassDec tree : program) {
+            Map<String, Integer> fields = new HashMap<>();
+            for (ClassVarDec dec : tree.vars()) {
+                if (dec.kind() != SymbolTable.SymbolKind.FIELD) continue;
+                for (String name : dec.names()) fields.put(name, fields.size());
+            }
+            for (SubroutineDec subroutine : tree.subroutines()) {
+                Candidate candidate = candidate(subroutine, fields, budget);
+                if (candidate != null) candidates.put(tree.name() + "." + subroutine.name(), candidate);
+            }
+        }
+    }
+
+    // The inlining recipe for "Class.subroutine", or null when it has to be called
+    public Candidate candidate(String name) {
+        return candidates.get(name);
+    }
+
+    private static Candidate candidate(SubroutineDec subroutine, Map<String, Integer> fields, int budget) {
+        if (subroutine.kind() == Keyword.CONSTRUCTOR || !subroutine.locals().isEmpty()) return null;
+        boolean method = subroutine.kind() == Keyword.METHOD;
+        List<String> parameters = new ArrayList<>();
+        for (Parameter parameter : subroutine.parameters()) parameters.add(parameter.name());
+        List<Statement> body = subroutine.body();
+
+        if (body.size() == 1 && body.get(0) instanceof Return ret && ret.value() != null) {
+            if (method && parameters.isEmpty() && ret.value() instanceof VarRef ref && fields.containsKey(ref.name())) {
+                return new Candidate(Kind.GETTER, true, fields.get(ref.name()), parameters, null);
+            }
+            if (isPureOver(ret.value(), parameters) && size(ret.value()) <= budget) {
+                return new Candidate(Kind.PURE, method, -1, parameters, ret.value());
+            }
+        }
+        if (method && body.size() == 2 && body.get(0) instanceof Let let && let.index() == null
+                && fields.containsKey(let.name()) && !parameters.contains(let.name())
+                && body.get(1) instanceof Return ret && ret.value() == null
+                && isPureOver(let.value(), parameters) && size(let.value()) <= budget) {
+            return new Candidate(Kind.SETTER, true, fields.get(let.name()), parameters, let.value());
+        }
+        return null;
+    }
+
+    // True when the expression is pure and uses each parameter exactly once, in order
+    private static boolean isPureOver(Expression expression, List<String> parameters) {
+        List<String> uses = new ArrayList<>();
+        return collectUses(expression, uses) && uses.equals(parameters) && ConstantFolder.isPure(expression);
+    }
+
+    private static boolean collectUses(Expression expression, List<String> uses) {
+        if (expression instanceof IntegerConstant) return true;
+        if (expression instanceof KeywordConstant k) return k.keyword() != Keyword.THIS;
+        if (expression instanceof VarRef ref) {
+            uses.add(ref.name());
+            return true;
+        }
+        if (expression instanceof Unary u) return collectUses(u.operand(), uses);
+        if (expression instanceof Binary b) return collectUses(b.left(), uses) && collectUses(b.right(), uses);
+        return false; // strings, arrays and calls
+    }
+
+    private static int size(Expression expression) {
+        if (expression instanceof Unary u) return 1 + size(u.operand());
+        if (expression instanceof Binary b) return 1 + size(b.left()) + size(b.right());
+        return 1;
+    }
+
+    // The candidate's expression with each parameter replaced by the matching argument
+    public static Expression substitute(Expression expression, List<String> parameters, List<Expression> arguments) {
+        if (expression instanceof VarRef ref) {
+            return arguments.get(parameters.indexOf(ref.name()));
+        }
+        if (expression instanceof Unary u) {
+            return new Unary(u.op(), substitute(u.operand(), parameters, arguments));
+        }
+        if (expression instanceof Binary b) {
+            return new Binary(substitute(b.left(), parameters, arguments), b.op(),
+                    substitute(b.right(), parameters, arguments));
+        }
+        return expression;
+    }
+}
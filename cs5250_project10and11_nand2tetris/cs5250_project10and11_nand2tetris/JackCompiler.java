@@ -0,0 +1,600 @@
+package cs5250_project10and11_nand2tetris;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.PrintStream;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+// Compiles a set of .jack files into .vm files, one after another or on a worker pool.
+// Each CompilationEngine is independent, so files compile in parallel; results are always
+// reported in input order, which keeps the console output the same from run to run.
+public class JackCompiler {
+    // Bump whenever the generated code changes, so incremental builds recompile everything
+    public static final String VERSION = "2";
+
+    private final CompilerOptions options;
+    private final Map<File, BuildManifest> manifests = new HashMap<>();
+    private final int[] peepholeRemoved = new int[PeepholeVMWriter.Rule.values().length];
+    private final Map<File, Ast.ClassDec> parsedTrees = new HashMap<>();   // whole-program and inlining modes
+    private final Map<File, Inliner> inliners = new HashMap<>();
+    private final Map<File, Exception> parseErrors = new HashMap<>();
+    private final Map<File, CompileStats> parseStats = new HashMap<>();     // measured while analyzing
+    private final List<CompileStats> stats = new ArrayList<>();             // --stats and --stats-json, in input order
+    private final Map<File, File> fragmentDirectories = new HashMap<>();    // --asm: class fragments until they are linked
+
+    // Files that can be written for each source: X.vm (or .vmb), and the project 10 analyzer
+    // outputs XT.xml (token list) and X.xml (parse tree). Any combination is produced from a
+    // single read and tokenization of the source.
+    public enum Output {
+        TOKENS("tokens"),
+        PARSE_TREE("xml"),
+        VM("vm");
+
+        private final String flag;
+
+        Output(String flag) {
+            this.flag = flag;
+        }
+
+        public String flag() {
+            return flag;
+        }
+
+        // Parses a comma-separated list of output flags, or "all"
+        public static EnumSet<Output> parse(String list) {
+            if (list.trim().equals("all")) return EnumSet.allOf(Output.class);
+            EnumSet<Output> outputs = EnumSet.noneOf(Output.class);
+            for (String name : list.split(",")) {
+                if (name.isBlank()) continue;
+                Output output = null;
+                for (Output candidate : values()) {
+                    if (candidate.flag.equals(name.trim())) output = candidate;
+                }
+                if (output == null) {
+                    throw new IllegalArgumentException("Unknown output '" + name.trim() + "', expected tokens, xml or vm");
+                }
+                outputs.add(output);
+            }
+            if (outputs.isEmpty()) throw new IllegalArgumentException("No outputs selected");
+            return outputs;
+        }
+    }
+
+    public enum Status {
+        COMPILED,       // output written
+        UNCHANGED,      // recompiled, but the output was identical so the file was left alone
+        UP_TO_DATE,     // skipped by an incremental build
+        FAILED
+    }
+
+    // Outcome of compiling one file
+    public static class Result {
+        public final File source;
+        public final File output;
+        public final Status status;
+        public final String log;        // engine progress messages (verbose mode)
+        public final Exception error;   // null unless FAILED
+        public final long heapBytes;    // -1 unless heap reporting is on
+        final String sourceHash;        // incremental builds only
+        final String outputHash;
+        final int[] peepholeRemoved;    // per PeepholeVMWriter.Rule; null when the peephole stage is off
+        public final CompileStats stats; // null unless the compile was measured
+
+        Result(File source, File output, Status status, String log, Exception error, long heapBytes,
+               String sourceHash, String outputHash, int[] peepholeRemoved, CompileStats stats) {
+            this.source = source;
+            this.output = output;
+            this.status = status;
+            this.log = log;
+            this.error = error;
+            this.heapBytes = heapBytes;
+            this.sourceHash = sourceHash;
+            this.outputHash = outputHash;
+            this.peepholeRemoved = peepholeRemoved;
+            this.stats = stats;
+        }
+    }
+
+    public JackCompiler(CompilerOptions options) {
+        this.options = options;
+    }
+
+    // Collects the .jack files of a file or directory, sorted by path so the order is stable
+    public static List<File> findJackFiles(File input, boolean recursive) {
+        List<File> jackFiles = new ArrayList<>();
+        if (input.isDirectory()) {
+            collect(input, recursive, jackFiles);
+            jackFiles.sort(Comparator.comparing(File::getPath));
+        } else if (input.getName().endsWith(".jack")) {
+            jackFiles.add(input);
+        }
+        return jackFiles;
+    }
+
+    private static void collect(File directory, boolean recursive, List<File> jackFiles) {
+        File[] files = directory.listFiles();
+        if (files == null) return;
+        for (File file : files) {
+            if (file.isDirectory()) {
+                if (recursive) collect(file, true, jackFiles);
+            } else if (file.getName().endsWith(".jack")) {
+                jackFiles.add(file);
+            }
+        }
+    }
+
+    public static File vmFileFor(File jack) {
+        return new File(jack.getParentFile(), jack.getName().replace(".jack", ".vm"));
+    }
+
+    // The .vm or .vmb file this compiler writes for a source file
+    public File outputFileFor(File jack) {
+        return options.binary ? new File(jack.getParentFile(), jack.getName().replace(".jack", ".vmb")) : vmFileFor(jack);
+    }
+
+    // The linked program --asm writes for a directory: Dir/Dir.asm
+    public static File programFileFor(File directory) {
+        return new File(directory, directory.getName() + ".asm");
+    }
+
+    // Compiles every file and prints each result in input order.
+    // Returns the number of files that failed.
+    public int compile(List<File> jackFiles, PrintStream out, PrintStream err) {
+        int workers = Math.min(options.workerCount(), Math.max(1, jackFiles.size()));
+        int failures = 0;
+
+        if (options.wholeProgram || options.inlineBudget > 0) {
+            analyzeWholePrograms(jackFiles, out);
+        }
+        if (options.asm) {
+            try {
+                createFragmentDirectories(jackFiles);
+            } catch (IOException e) {
+                err.println("Could not create a temporary directory: " + e.getMessage());
+                return jackFiles.size();
+            }
+        }
+        if (options.incremental && options.asm) {
+            out.println("Incremental builds are off with --asm: every class is linked into one program.");
+        } else if (options.incremental && (options.wholeProgram || options.inlineBudget > 0)) {
+            out.println("Incremental builds are off with --whole-program and --inline: every output depends on every class.");
+        } else if (options.incremental && !options.outputs.equals(EnumSet.of(Output.VM))) {
+            out.println("Incremental builds only track .vm output; ignoring --incremental with --emit.");
+        } else if (options.incremental) {
+            String fingerprint = VERSION + ";" + options.outputFingerprint();
+            for (File jack : jackFiles) {
+                manifests.computeIfAbsent(jack.getAbsoluteFile().getParentFile(),
+                        directory -> BuildManifest.load(directory, fingerprint));
+            }
+        }
+
+        if (workers == 1) {
+            for (File jack : jackFiles) {
+                failures += report(compileFile(jack, options.reportHeap), out, err);
+            }
+            return finish(jackFiles, failures, out, err);
+        }
+        if (options.reportHeap) {
+            out.println("Peak heap is only reported with a single worker.");
+        }
+
+        ExecutorService pool = newPool(workers);
+        Semaphore slots = new Semaphore(workers); // bounds concurrency for virtual threads
+        try {
+            List<Future<Result>> pending = new ArrayList<>(jackFiles.size());
+            for (File jack : jackFiles) {
+                pending.add(pool.submit(() -> {
+                    slots.acquire();
+                    try {
+                        return compileFile(jack, false);
+                    } finally {
+                        slots.release();
+                    }
+                }));
+            }
+            for (Future<Result> future : pending) {
+                failures += report(future.get(), out, err);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        return finish(jackFiles, failures, out, err);
+    }
+
+    // Reports and saves what the whole run produced; returns the failures plus any new ones
+    private int finish(List<File> jackFiles, int failures, PrintStream out, PrintStream err) {
+        reportPeephole(out);
+        forgetWholePrograms();
+        if (options.asm) failures += linkPrograms(jackFiles, failures, out, err);
+        return failures + reportStats(out, err) + saveManifests(err);
+    }
+
+    private void forgetWholePrograms() {
+        parsedTrees.clear();
+        inliners.clear();
+        parseErrors.clear();
+        parseStats.clear();
+    }
+
+    // Parses every class of each directory for the modes that need the whole program. With
+    // --inline, collects the inlinable subroutines. With --whole-program, finds the subroutines
+    // reachable from the program's entry point, keeps the pruned trees and reports what was dropped.
+    private void analyzeWholePrograms(List<File> jackFiles, PrintStream out) {
+        Map<File, List<File>> directories = new LinkedHashMap<>();
+        for (File jack : jackFiles) {
+            directories.computeIfAbsent(jack.getAbsoluteFile().getParentFile(), directory -> new ArrayList<>()).add(jack);
+        }
+        for (Map.Entry<File, List<File>> directory : directories.entrySet()) {
+            Map<File, Ast.ClassDec> trees = new LinkedHashMap<>();
+            for (File jack : directory.getValue()) {
+                CompileStats measured = CompileStats.start(jack, options);
+                try {
+                    trees.put(jack, parse(jack, measured));
+                    if (measured != null) {
+                        measured.pause();
+                        parseStats.put(jack, measured);
+                    }
+                } catch (Exception e) {
+                    parseErrors.put(jack, e);
+                }
+            }
+
+            if (options.inlineBudget > 0) {
+                Inliner inliner = new Inliner(trees.values(), options.inlineBudget);
+                for (File jack : trees.keySet()) inliners.put(jack, inliner);
+            }
+            if (!options.wholeProgram) {
+                parsedTrees.putAll(trees);
+                continue;
+            }
+            CallGraph graph = new CallGraph(trees.values());
+            if (graph.entryPoint() == null) {
+                out.println("Whole program: no Main.main or Sys.init in " + directory.getKey() + ", keeping every subroutine.");
+                parsedTrees.putAll(trees);
+                continue;
+            }
+            Set<String> live = graph.reachable();
+            int total = 0, dropped = 0, droppedCommands = 0;
+            for (Map.Entry<File, Ast.ClassDec> entry : trees.entrySet()) {
+                Ast.ClassDec tree = entry.getValue();
+                Ast.ClassDec pruned = CallGraph.prune(tree, live);
+                List<Ast.SubroutineDec> dead = new ArrayList<>(tree.subroutines());
+                dead.removeAll(pruned.subroutines());
+                total += tree.subroutines().size();
+                dropped += dead.size();
+                if (!dead.isEmpty()) {
+                    droppedCommands += CallGraph.commandCount(tree, dead);
+                    if (options.verbose) {
+                        for (Ast.SubroutineDec subroutine : dead) {
+                            out.println("Dropped unreachable " + tree.name() + "." + subroutine.name());
+                        }
+                    }
+                }
+                parsedTrees.put(entry.getKey(), pruned);
+            }
+            out.println("Whole program " + directory.getKey() + ": dropped " + dropped + " of " + total
+                    + " subroutines (" + droppedCommands + " VM commands) unreachable from " + graph.entryPoint());
+        }
+    }
+
+    // One temporary directory per source directory, so classes with the same name in different
+    // programs do not clash and nothing but the linked program is left next to the sources
+    private void createFragmentDirectories(List<File> jackFiles) throws IOException {
+        for (File jack : jackFiles) {
+            File directory = jack.getAbsoluteFile().getParentFile();
+            if (!fragmentDirectories.containsKey(directory)) {
+                fragmentDirectories.put(directory, Files.createTempDirectory("jack-asm").toFile());
+            }
+        }
+    }
+
+    private File fragmentFor(File jack) {
+        return new File(fragmentDirectories.get(jack.getAbsoluteFile().getParentFile()), jack.getName().replace(".jack", ".asm"));
+    }
+
+    // Links each directory's fragments into Dir/Dir.asm, together with the .vm (or .vmb) files of
+    // classes that have no .jack source there and then the --os classes that the program does not
+    // define itself. Returns the number of programs that could not be linked.
+    private int linkPrograms(List<File> jackFiles, int compileFailures, PrintStream out, PrintStream err) {
+        Map<File, List<File>> directories = new LinkedHashMap<>();
+        for (File jack : jackFiles) {
+            directories.computeIfAbsent(jack.getAbsoluteFile().getParentFile(), directory -> new ArrayList<>()).add(jack);
+        }
+        int failures = 0;
+        try {
+            if (compileFailures > 0) {
+                err.println("Not linking: " + compileFailures + " file(s) failed to compile");
+                return 0;
+            }
+            for (Map.Entry<File, List<File>> directory : directories.entrySet()) {
+                File program = programFileFor(directory.getKey());
+                try {
+                    AsmLinker linker = new AsmLinker();
+                    Set<String> classes = new HashSet<>();
+                    for (File jack : directory.getValue()) {
+                        classes.add(className(jack));
+                        linker.add(fragmentFor(jack));
+                    }
+                    List<File> vmFiles = new ArrayList<>(VMInterpreter.programFiles(directory.getKey()));
+                    if (options.osDirectory != null) vmFiles.addAll(VMInterpreter.programFiles(options.osDirectory));
+                    File fragments = fragmentDirectories.get(directory.getKey());
+                    for (File vmFile : vmFiles) {
+                        if (!classes.add(className(vmFile))) continue;
+                        File fragment = new File(fragments, className(vmFile) + ".asm");
+                        AsmVMWriter writer = new AsmVMWriter(fragment);
+                        try {
+                            VMTextReader.replay(vmFile, writer);
+                        } finally {
+                            writer.close();
+                        }
+                        linker.add(fragment);
+                    }
+                    int instructions = linker.link(program);
+                    out.println("Generated ASM: " + program.getAbsolutePath() + " (" + instructions + " instructions)");
+                    if (instructions > AsmLinker.ROM_SIZE) {
+                        err.println("Warning: " + program.getName() + " has " + instructions
+                                + " instructions, more than the " + AsmLinker.ROM_SIZE + " the Hack ROM holds");
+                    }
+                } catch (IOException | UncheckedIOException e) {
+                    err.println("Could not link " + program.getAbsolutePath() + ": " + e.getMessage());
+                    failures++;
+                }
+            }
+        } finally {
+            for (File fragments : fragmentDirectories.values()) delete(fragments);
+            fragmentDirectories.clear();
+        }
+        return failures;
+    }
+
+    private static String className(File file) {
+        return file.getName().substring(0, file.getName().lastIndexOf('.'));
+    }
+
+    private static void delete(File directory) {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) file.delete();
+        }
+        directory.delete();
+    }
+
+    private Ast.ClassDec parse(File jack, CompileStats measured) throws IOException {
+        Tokenizer tokenizer = new Tokenizer(jack, options.lexing, measured);
+        try {
+            if (measured != null) measured.begin(CompileStats.Phase.PARSE);
+            tokenizer.advance();
+            Ast.ClassDec tree = new AstParser(tokenizer).parseClass();
+            if (measured != null) measured.end();
+            return tree;
+        } finally {
+            tokenizer.close();
+        }
+    }
+
+    // One summary line for the whole run: how many commands each enabled rule removed
+    private void reportPeephole(PrintStream out) {
+        if (options.peephole.isEmpty()) return;
+        StringBuilder rules = new StringBuilder();
+        int total = 0;
+        for (PeepholeVMWriter.Rule rule : options.peephole) {
+            rules.append(rules.length() == 0 ? "" : ", ").append(rule.flag()).append(' ').append(peepholeRemoved[rule.ordinal()]);
+            total += peepholeRemoved[rule.ordinal()];
+        }
+        out.println("Peephole removed " + total + " commands (" + rules + ")");
+        Arrays.fill(peepholeRemoved, 0);
+    }
+
+    // Prints the per-phase table for --stats and writes the JSON report for --stats-json.
+    // Returns 1 when the report file could not be written.
+    private int reportStats(PrintStream out, PrintStream err) {
+        if (stats.isEmpty()) return 0;
+        int failures = 0;
+        if (options.stats) {
+            out.print(CompileStats.table(stats));
+        }
+        if (options.statsJson != null) {
+            try {
+                Files.writeString(options.statsJson.toPath(), CompileStats.json(stats));
+                out.println("Compile stats: " + options.statsJson.getAbsolutePath());
+            } catch (IOException e) {
+                err.println("Could not write compile stats: " + e.getMessage());
+                failures++;
+            }
+        }
+        stats.clear();
+        return failures;
+    }
+
+    private int saveManifests(PrintStream err) {
+        int failures = 0;
+        for (BuildManifest manifest : manifests.values()) {
+            try {
+                manifest.save();
+            } catch (IOException e) {
+                err.println("Could not write build manifest: " + e.getMessage());
+                failures++;
+            }
+        }
+        manifests.clear();
+        return failures;
+    }
+
+    public Result compileFile(File jack) {
+        return compileFile(jack, options.reportHeap);
+    }
+
+    private Result compileFile(File jack, boolean probeHeap) {
+        File vmFile = options.asm ? fragmentFor(jack) : outputFileFor(jack);
+        BuildManifest manifest = manifests.get(jack.getAbsoluteFile().getParentFile());
+        if (manifest != null) {
+            return compileIncrementally(jack, vmFile, manifest);
+        }
+
+        HeapProbe heap = probeHeap ? HeapProbe.start() : null;
+        try {
+            if (parseErrors.containsKey(jack)) throw parseErrors.get(jack);
+            Ast.ClassDec tree = parsedTrees.get(jack);
+            CompileStats measured = measure(jack);
+            if (!options.outputs.equals(EnumSet.of(Output.VM))) {
+                return compileOutputs(jack, vmFile, tree, heap, measured);
+            }
+            CompilationEngine engine = tree != null
+                    ? new CompilationEngine(tree, vmFile, options, inliners.get(jack), measured)
+                    : new CompilationEngine(jack, vmFile, options, measured);
+            if (measured != null) measured.finish();
+            return new Result(jack, vmFile, Status.COMPILED, engine.getLog(), null,
+                    heap != null ? heap.peakBytes() : -1, null, null, engine.getPeepholeRemoved(), measured);
+        } catch (Exception e) {
+            return new Result(jack, vmFile, Status.FAILED, "", e, -1, null, null, null, null);
+        }
+    }
+
+    // Continues the measurement started by whole-program analysis, or starts a new one
+    private CompileStats measure(File jack) {
+        CompileStats measured;
+        synchronized (parseStats) {
+            measured = parseStats.remove(jack);
+        }
+        if (measured == null) return CompileStats.start(jack, options);
+        measured.resume();
+        return measured;
+    }
+
+    // Writes the selected outputs of one file. The source is read and lexed once; each writer
+    // then walks the same tokens from the start. Streaming lexing cannot go back, so the
+    // scanner is used instead when more than one writer needs the tokens.
+    private Result compileOutputs(File jack, File vmFile, Ast.ClassDec tree, HeapProbe heap, CompileStats measured)
+            throws IOException {
+        EnumSet<Output> outputs = options.outputs;
+        boolean vmFromTokens = outputs.contains(Output.VM) && tree == null;
+        int readers = (outputs.contains(Output.TOKENS) ? 1 : 0) + (outputs.contains(Output.PARSE_TREE) ? 1 : 0)
+                + (vmFromTokens ? 1 : 0);
+        Tokenizer.Lexing lexing = readers > 1 && options.lexing == Tokenizer.Lexing.STREAMING
+                ? Tokenizer.Lexing.SCANNER : options.lexing;
+        Tokenizer tokenizer = readers > 0 ? new Tokenizer(jack, lexing, measured) : null;
+
+        StringBuilder log = new StringBuilder();
+        if (outputs.contains(Output.TOKENS)) {
+            File tokenFile = new File(jack.getParentFile(), jack.getName().replace(".jack", "T.xml"));
+            if (measured != null) measured.begin(CompileStats.Phase.WRITE);
+            tokenizer.writeXml(tokenFile);
+            if (measured != null) measured.end();
+            log.append("Generated tokens: ").append(tokenFile.getAbsolutePath()).append('\n');
+            if (--readers > 0) tokenizer.rewind();
+        }
+        if (outputs.contains(Output.PARSE_TREE)) {
+            File xmlFile = new File(jack.getParentFile(), jack.getName().replace(".jack", ".xml"));
+            if (measured != null) measured.begin(CompileStats.Phase.PARSE);
+            new Parser(tokenizer, xmlFile);
+            if (measured != null) measured.end();
+            log.append("Generated XML: ").append(xmlFile.getAbsolutePath()).append('\n');
+            if (--readers > 0) tokenizer.rewind();
+        }
+        if (!outputs.contains(Output.VM)) {
+            if (measured != null) measured.finish();
+            return new Result(jack, null, Status.COMPILED, log.toString(), null,
+                    heap != null ? heap.peakBytes() : -1, null, null, null, measured);
+        }
+        CompilationEngine engine = vmFromTokens
+                ? new CompilationEngine(tokenizer, vmFile, options)
+                : new CompilationEngine(tree, vmFile, options, inliners.get(jack), measured);
+        if (measured != null) measured.finish();
+        return new Result(jack, vmFile, Status.COMPILED, log + engine.getLog(), null,
+                heap != null ? heap.peakBytes() : -1, null, null, engine.getPeepholeRemoved(), measured);
+    }
+
+    // Skips the file when the manifest says its source and output are unchanged. Otherwise compiles
+    // into a temporary file and only replaces the output if the bytes differ, so tools watching
+    // output mtimes see no change for a no-op recompile.
+    private Result compileIncrementally(File jack, File vmFile, BuildManifest manifest) {
+        File temp = new File(vmFile.getParentFile(), vmFile.getName() + ".tmp");
+        try {
+            String sourceHash = BuildManifest.hash(jack);
+            if (manifest.isUpToDate(jack, sourceHash, vmFile)) {
+                return new Result(jack, vmFile, Status.UP_TO_DATE, "", null, -1, null, null, null, null);
+            }
+
+            CompileStats measured = CompileStats.start(jack, options);
+            CompilationEngine engine = new CompilationEngine(jack, temp, options, measured);
+            if (measured != null) measured.finish();
+            byte[] produced = Files.readAllBytes(temp.toPath());
+            Status status;
+            if (vmFile.isFile() && Arrays.equals(produced, Files.readAllBytes(vmFile.toPath()))) {
+                Files.delete(temp.toPath());
+                status = Status.UNCHANGED;
+            } else {
+                replace(temp, vmFile);
+                status = Status.COMPILED;
+            }
+            return new Result(jack, vmFile, status, engine.getLog(), null, -1, sourceHash, BuildManifest.hash(produced),
+                    engine.getPeepholeRemoved(), measured);
+        } catch (Exception e) {
+            temp.delete();
+            return new Result(jack, vmFile, Status.FAILED, "", e, -1, null, null, null, null);
+        }
+    }
+
+    private static void replace(File from, File to) throws IOException {
+        try {
+            Files.move(from.toPath(), to.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(from.toPath(), to.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private int report(Result result, PrintStream out, PrintStream err) {
+        if (!result.log.isEmpty()) {
+            out.print(result.log);
+        }
+        if (result.status == Status.FAILED) {
+            err.println("Error parsing file: " + result.source.getName());
+            result.error.printStackTrace(err);
+            return 1;
+        }
+        if (result.stats != null && options.collectsStats()) {
+            stats.add(result.stats);
+        }
+        if (result.peepholeRemoved != null) {
+            for (int i = 0; i < peepholeRemoved.length; i++) {
+                peepholeRemoved[i] += result.peepholeRemoved[i];
+            }
+        }
+        if (result.sourceHash != null) {
+            BuildManifest manifest = manifests.get(result.source.getAbsoluteFile().getParentFile());
+            manifest.record(result.source, result.sourceHash);
+            manifest.record(result.output, result.outputHash);
+        }
+        if (result.output == null || options.asm) {
+            return 0; // only XML outputs, already listed in the log, or a fragment linked at the end
+        }
+        if (result.status == Status.UP_TO_DATE) {
+            out.println("Up to date: " + result.output.getAbsolutePath());
+            return 0;
+        }
+        out.println((result.status == Status.UNCHANGED ? "Unchanged VM: " : "Generated VM: ") + result.output.getAbsolutePath());
+        if (result.heapBytes >= 0) {
+            out.println("Peak heap: " + result.heapBytes / 1024 + " KB");
+        }
+        return 0;
+    }
+
+    private ExecutorService newPool(int workers) {
+        if (options.virtualThreads) {
+            // Executors.newVirtualThreadPerTaskExecutor() exists from Java 21 (preview in 19/20)
+            try {
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+                // Fall back to platform threads below
+            }
+        }
+        return new ForkJoinPool(workers);
+    }
+}
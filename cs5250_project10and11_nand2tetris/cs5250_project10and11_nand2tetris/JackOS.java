@@ -0,0 +1,348 @@
+package cs5250_project10and11_nand2tetris;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+import static cs5250_project10and11_nand2tetris.VMInterpreter.*;
+
+// Native implementation of the Jack OS classes for VMInterpreter. Arguments are read from RAM
+// where the caller pushed them and the return value goes back on the stack, so the program cannot
+// tell these from compiled OS classes, apart from not paying for their commands.
+// Output is text: printed characters go to the output stream and Keyboard reads lines from the
+// input, echoing them like the real OS does; moving the cursor to another row starts a new line.
+// Screen functions set pixels in the screen memory map.
+// Strings are heap blocks of [capacity, length, characters...]; Memory.alloc keeps the block size
+// in the word before each block and reuses freed blocks of the same size.
+final class JackOS {
+    enum Function {
+        MATH_INIT("Math.init", 0),
+        MATH_ABS("Math.abs", 1),
+        MATH_MULTIPLY("Math.multiply", 2),
+        MATH_DIVIDE("Math.divide", 2),
+        MATH_MIN("Math.min", 2),
+        MATH_MAX("Math.max", 2),
+        MATH_SQRT("Math.sqrt", 1),
+        STRING_NEW("String.new", 1),
+        STRING_DISPOSE("String.dispose", 1),
+        STRING_LENGTH("String.length", 1),
+        STRING_CHAR_AT("String.charAt", 2),
+        STRING_SET_CHAR_AT("String.setCharAt", 3),
+        STRING_APPEND_CHAR("String.appendChar", 2),
+        STRING_ERASE_LAST_CHAR("String.eraseLastChar", 1),
+        STRING_INT_VALUE("String.intValue", 1),
+        STRING_SET_INT("String.setInt", 2),
+        STRING_BACK_SPACE("String.backSpace", 0),
+        STRING_DOUBLE_QUOTE("String.doubleQuote", 0),
+        STRING_NEW_LINE("String.newLine", 0),
+        ARRAY_NEW("Array.new", 1),
+        ARRAY_DISPOSE("Array.dispose", 1),
+        OUTPUT_INIT("Output.init", 0),
+        OUTPUT_MOVE_CURSOR("Output.moveCursor", 2),
+        OUTPUT_PRINT_CHAR("Output.printChar", 1),
+        OUTPUT_PRINT_STRING("Output.printString", 1),
+        OUTPUT_PRINT_INT("Output.printInt", 1),
+        OUTPUT_PRINTLN("Output.println", 0),
+        OUTPUT_BACK_SPACE("Output.backSpace", 0),
+        SCREEN_INIT("Screen.init", 0),
+        SCREEN_CLEAR_SCREEN("Screen.clearScreen", 0),
+        SCREEN_SET_COLOR("Screen.setColor", 1),
+        SCREEN_DRAW_PIXEL("Screen.drawPixel", 2),
+        SCREEN_DRAW_LINE("Screen.drawLine", 4),
+        SCREEN_DRAW_RECTANGLE("Screen.drawRectangle", 4),
+        SCREEN_DRAW_CIRCLE("Screen.drawCircle", 3),
+        KEYBOARD_INIT("Keyboard.init", 0),
+        KEYBOARD_KEY_PRESSED("Keyboard.keyPressed", 0),
+        KEYBOARD_READ_CHAR("Keyboard.readChar", 0),
+        KEYBOARD_READ_LINE("Keyboard.readLine", 1),
+        KEYBOARD_READ_INT("Keyboard.readInt", 1),
+        MEMORY_INIT("Memory.init", 0),
+        MEMORY_PEEK("Memory.peek", 1),
+        MEMORY_POKE("Memory.poke", 2),
+        MEMORY_ALLOC("Memory.alloc", 1),
+        MEMORY_DE_ALLOC("Memory.deAlloc", 1),
+        SYS_HALT("Sys.halt", 0),
+        SYS_ERROR("Sys.error", 1),
+        SYS_WAIT("Sys.wait", 1);
+
+        private static final Function[] VALUES = values();
+        private static final Map<String, Function> BY_NAME = new HashMap<>();
+        static {
+            for (Function function : VALUES) BY_NAME.put(function.qualifiedName, function);
+        }
+
+        final String qualifiedName;
+        final int arity;
+
+        Function(String qualifiedName, int arity) {
+            this.qualifiedName = qualifiedName;
+            this.arity = arity;
+        }
+
+        // The native function with this name, or null
+        static Function named(String name) {
+            return BY_NAME.get(name);
+        }
+    }
+
+    private static final int NEW_LINE = 128, BACK_SPACE = 129, DOUBLE_QUOTE = 34;
+    private static final int HEAP_END = SCREEN;
+
+    private final int[] ram;
+    private final BufferedReader in;
+    private final PrintStream out;
+    private int heapTop = HEAP_BASE + 1;    // next block starts here; its size goes in the word before
+    private final Map<Integer, ArrayDeque<Integer>> freeBlocks = new HashMap<>();
+    private boolean black = true;
+    private int row;                        // cursor row, as far as text output can follow it
+
+    JackOS(int[] ram, BufferedReader in, PrintStream out) {
+        this.ram = ram;
+        this.in = in;
+        this.out = out;
+    }
+
+    // Runs a native function on the arguments at ram[base..]; returns 0 for void functions
+    int call(int function, int base) {
+        int[] ram = this.ram;
+        int x = ram[base], y = ram[base + 1], z = ram[base + 2];
+        switch (Function.VALUES[function]) {
+            case MATH_ABS: return (short) Math.abs(x);
+            case MATH_MULTIPLY: return (short) (x * y);
+            case MATH_DIVIDE:
+                if (y == 0) throw new Trap("Math.divide: division by zero");
+                return (short) (x / y);
+            case MATH_MIN: return Math.min(x, y);
+            case MATH_MAX: return Math.max(x, y);
+            case MATH_SQRT:
+                if (x < 0) throw new Trap("Math.sqrt: negative argument");
+                return (int) Math.sqrt(x);
+            case STRING_NEW:
+                if (x < 0) throw new Trap("String.new: negative length");
+                int string = alloc(x + 2);
+                ram[string] = x;
+                ram[string + 1] = 0;
+                return string;
+            case STRING_DISPOSE:
+            case ARRAY_DISPOSE:
+            case MEMORY_DE_ALLOC:
+                deAlloc(x);
+                return 0;
+            case STRING_LENGTH: return ram[x + 1];
+            case STRING_CHAR_AT:
+                checkIndex(x, y, "String.charAt");
+                return ram[x + 2 + y];
+            case STRING_SET_CHAR_AT:
+                checkIndex(x, y, "String.setCharAt");
+                ram[x + 2 + y] = z;
+                return 0;
+            case STRING_APPEND_CHAR:
+                if (ram[x + 1] >= ram[x]) throw new Trap("String.appendChar: string is full");
+                ram[x + 2 + ram[x + 1]++] = y;
+                return x;
+            case STRING_ERASE_LAST_CHAR:
+                if (ram[x + 1] == 0) throw new Trap("String.eraseLastChar: string is empty");
+                ram[x + 1]--;
+                return 0;
+            case STRING_INT_VALUE: return intValue(x);
+            case STRING_SET_INT:
+                String digits = Integer.toString(y);
+                if (digits.length() > ram[x]) throw new Trap("String.setInt: string is too short");
+                for (int i = 0; i < digits.length(); i++) ram[x + 2 + i] = digits.charAt(i);
+                ram[x + 1] = digits.length();
+                return 0;
+            case STRING_BACK_SPACE: return BACK_SPACE;
+            case STRING_DOUBLE_QUOTE: return DOUBLE_QUOTE;
+            case STRING_NEW_LINE: return NEW_LINE;
+            case ARRAY_NEW:
+                if (x <= 0) throw new Trap("Array.new: size must be positive");
+                return alloc(x);
+            case OUTPUT_MOVE_CURSOR:
+                if (x < 0 || x > 22 || y < 0 || y > 63) throw new Trap("Output.moveCursor: illegal cursor location");
+                if (x != row) {
+                    out.println();
+                    row = x;
+                }
+                return 0;
+            case OUTPUT_PRINT_CHAR:
+                printChar(x);
+                return 0;
+            case OUTPUT_PRINT_STRING:
+                printString(x);
+                return 0;
+            case OUTPUT_PRINT_INT:
+                out.print(x);
+                return 0;
+            case OUTPUT_PRINTLN:
+                printChar(NEW_LINE);
+                return 0;
+            case OUTPUT_BACK_SPACE:
+                out.print('\b');
+                return 0;
+            case SCREEN_CLEAR_SCREEN:
+                for (int address = SCREEN; address < KEYBOARD; address++) ram[address] = 0;
+                return 0;
+            case SCREEN_SET_COLOR:
+                black = x != 0;
+                return 0;
+            case SCREEN_DRAW_PIXEL:
+                checkPixel(x, y, "Screen.drawPixel");
+                pixel(x, y);
+                return 0;
+            case SCREEN_DRAW_LINE:
+                checkPixel(x, y, "Screen.drawLine");
+                checkPixel(z, ram[base + 3], "Screen.drawLine");
+                line(x, y, z, ram[base + 3]);
+                return 0;
+            case SCREEN_DRAW_RECTANGLE:
+                checkPixel(x, y, "Screen.drawRectangle");
+                checkPixel(z, ram[base + 3], "Screen.drawRectangle");
+                for (int row = y; row <= ram[base + 3]; row++) {
+                    for (int column = x; column <= z; column++) pixel(column, row);
+                }
+                return 0;
+            case SCREEN_DRAW_CIRCLE:
+                if (z < 0 || z > 181) throw new Trap("Screen.drawCircle: illegal radius");
+                for (int dy = -z; dy <= z; dy++) {
+                    int half = (int) Math.sqrt(z * z - dy * dy);
+                    for (int column = x - half; column <= x + half; column++) {
+                        checkPixel(column, y + dy, "Screen.drawCircle");
+                        pixel(column, y + dy);
+                    }
+                }
+                return 0;
+            case KEYBOARD_KEY_PRESSED: return ram[KEYBOARD];
+            case KEYBOARD_READ_CHAR: return readChar();
+            case KEYBOARD_READ_LINE:
+                printString(x);
+                return newString(readLine());
+            case KEYBOARD_READ_INT:
+                printString(x);
+                int value = newString(readLine());
+                int result = intValue(value);
+                deAlloc(value);
+                return result;
+            case MEMORY_PEEK: return ram[x];
+            case MEMORY_POKE:
+                ram[x] = y;
+                return 0;
+            case MEMORY_ALLOC:
+                if (x <= 0) throw new Trap("Memory.alloc: size must be positive");
+                return alloc(x);
+            case SYS_HALT: throw new Halt();
+            case SYS_ERROR: throw new Trap("Sys.error(" + x + ")");
+            default: return 0; // the init functions and Sys.wait have nothing to do here
+        }
+    }
+
+    private int alloc(int size) {
+        ArrayDeque<Integer> free = freeBlocks.get(size);
+        if (free != null && !free.isEmpty()) return free.pop();
+        if (heapTop + size > HEAP_END) throw new Trap("Memory.alloc: heap overflow");
+        int block = heapTop;
+        ram[block - 1] = size;
+        heapTop += size + 1;
+        return block;
+    }
+
+    private void deAlloc(int block) {
+        if (block <= HEAP_BASE || block >= heapTop) throw new Trap("Memory.deAlloc: not a heap block");
+        freeBlocks.computeIfAbsent(ram[block - 1], size -> new ArrayDeque<>()).push(block);
+    }
+
+    private void checkIndex(int string, int index, String function) {
+        if (index < 0 || index >= ram[string + 1]) throw new Trap(function + ": index out of bounds");
+    }
+
+    private int intValue(int string) {
+        int length = ram[string + 1], i = 0, value = 0;
+        boolean negative = length > 0 && ram[string + 2] == '-';
+        if (negative) i++;
+        for (; i < length && ram[string + 2 + i] >= '0' && ram[string + 2 + i] <= '9'; i++) {
+            value = value * 10 + ram[string + 2 + i] - '0';
+        }
+        return (short) (negative ? -value : value);
+    }
+
+    private int newString(String text) {
+        int string = alloc(Math.max(1, text.length()) + 2);
+        ram[string] = Math.max(1, text.length());
+        ram[string + 1] = text.length();
+        for (int i = 0; i < text.length(); i++) ram[string + 2 + i] = text.charAt(i);
+        return string;
+    }
+
+    private void printChar(int c) {
+        if (c == NEW_LINE) {
+            out.println();
+            row++;
+        } else if (c == BACK_SPACE) {
+            out.print('\b');
+        } else {
+            out.print((char) c);
+        }
+    }
+
+    private void printString(int string) {
+        for (int i = 0; i < ram[string + 1]; i++) printChar(ram[string + 2 + i]);
+    }
+
+    // Typed input ends with newLine, which the real OS echoes; end of input reads as an empty line
+    private String readLine() {
+        try {
+            String line = in.readLine();
+            line = line != null ? line : "";
+            out.print(line);
+            printChar(NEW_LINE);
+            return line;
+        } catch (IOException e) {
+            throw new Trap("Keyboard: " + e.getMessage());
+        }
+    }
+
+    private int readChar() {
+        try {
+            int c = in.read();
+            if (c < 0 || c == '\n') {
+                printChar(NEW_LINE);
+                return NEW_LINE;
+            }
+            out.print((char) c);
+            return c;
+        } catch (IOException e) {
+            throw new Trap("Keyboard: " + e.getMessage());
+        }
+    }
+
+    private static void checkPixel(int x, int y, String function) {
+        if (x < 0 || x > 511 || y < 0 || y > 255) throw new Trap(function + ": illegal coordinates");
+    }
+
+    private void pixel(int x, int y) {
+        int address = SCREEN + y * 32 + x / 16;
+        int bit = 1 << (x & 15);
+        ram[address] = (short) (black ? ram[address] | bit : ram[address] & ~bit);
+    }
+
+    private void line(int x1, int y1, int x2, int y2) {
+        int dx = Math.abs(x2 - x1), dy = -Math.abs(y2 - y1);
+        int stepX = x1 < x2 ? 1 : -1, stepY = y1 < y2 ? 1 : -1;
+        int error = dx + dy;
+        while (true) {
+            pixel(x1, y1);
+            if (x1 == x2 && y1 == y2) return;
+            int twice = 2 * error;
+            if (twice >= dy) {
+                error += dy;
+                x1 += stepX;
+            }
+            if (twice <= dx) {
+                error += dx;
+                y1 += stepY;
+            }
+        }
+    }
+}
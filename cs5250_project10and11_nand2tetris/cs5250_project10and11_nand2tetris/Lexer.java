@@ -0,0 +1,206 @@
+package cs5250_project10and11_nand2tetris;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+import cs5250_project10and11_nand2tetris.Tokenizer.Keyword;
+import cs5250_project10and11_nand2tetris.Tokenizer.TokenType;
+
+// Hand-written single-pass scanner for Jack source.
+// Walks the characters once, skipping whitespace and comments, and reports each token
+// as its type and value plus its start offset, length and line in the source buffer.
+//
+// The source is either one buffer holding the whole file, or a Reader pulled through a
+// small window that is compacted and refilled as the scan moves forward. In the streaming
+// case offsets are only valid until the next call to next().
+class Lexer {
+    static final int WINDOW_SIZE = 8192;
+
+    private final Reader reader;    // null when buf already holds the whole source
+    private char[] buf;
+    private int length;
+    private int pos = 0;
+    private int line = 1;
+    private boolean inToken;
+
+    private int tokenStart;
+    private int tokenLength;
+    private int tokenLine;
+    private int tokenValue;
+
+    Lexer(char[] buf, int length) {
+        this.reader = null;
+        this.buf = buf;
+        this.length = length;
+    }
+
+    Lexer(Reader reader) {
+        this.reader = reader;
+        this.buf = new char[WINDOW_SIZE];
+        this.length = 0;
+    }
+
+    // Scans the next token and returns its type, or NULL when the source is exhausted.
+    TokenType next() {
+        skipWhitespaceAndComments();
+        if (!ensure(1)) {
+            return TokenType.NULL;
+        }
+
+        inToken = true;
+        tokenStart = pos;
+        tokenLine = line;
+        char c = buf[pos];
+        try {
+            if (c == '"') {
+                int lines = 0;
+                pos++;
+                while (ensure(1) && buf[pos] != '"') {
+                    if (buf[pos] == '\n') lines++;
+                    pos++;
+                }
+                if (ensure(1)) {
+                    pos++;
+                    line += lines;
+                    tokenLength = pos - tokenStart;
+                    return TokenType.STRING_CONST;
+                }
+                // Unterminated string: the quote stands alone, as with the regex tokenizer
+                pos = tokenStart;
+            }
+
+            if (isDigit(c)) {
+                int value = 0;
+                while (ensure(1) && isDigit(buf[pos])) {
+                    if (value <= Tokenizer.MAX_INT_CONST) value = value * 10 + (buf[pos] - '0'); // stays out of range
+                    pos++;
+                }
+                tokenLength = pos - tokenStart;
+                tokenValue = value;
+                return TokenType.INT_CONST;
+            }
+
+            if (isIdentifierStart(c)) {
+                while (ensure(1) && isIdentifierPart(buf[pos])) pos++;
+                tokenLength = pos - tokenStart;
+                Keyword keyword = Keyword.lookup(buf, tokenStart, tokenLength);
+                if (keyword != null) {
+                    tokenValue = keyword.ordinal();
+                    return TokenType.KEYWORD;
+                }
+                return TokenType.IDENTIFIER;
+            }
+
+            pos++;
+            tokenLength = 1;
+            tokenValue = c;
+            return Tokenizer.classify(buf, tokenStart, 1);
+        } finally {
+            inToken = false;
+        }
+    }
+
+    int start() {
+        return tokenStart;
+    }
+
+    int length() {
+        return tokenLength;
+    }
+
+    int line() {
+        return tokenLine;
+    }
+
+    // Keyword ordinal, symbol char or integer value of the last token
+    int value() {
+        return tokenValue;
+    }
+
+    String text() {
+        return new String(buf, tokenStart, tokenLength);
+    }
+
+    // ID of the last token's characters in the intern table
+    int intern(Identifiers ids) {
+        return ids.intern(buf, tokenStart, tokenLength);
+    }
+
+    // Current capacity of the character buffer, for memory reporting
+    int bufferSize() {
+        return buf.length;
+    }
+
+    private void skipWhitespaceAndComments() {
+        while (ensure(1)) {
+            char c = buf[pos];
+            if (c == '\n') {
+                line++;
+                pos++;
+            } else if (c == '/' && ensure(2) && buf[pos + 1] == '/') {
+                while (ensure(1) && buf[pos] != '\n') pos++;
+            } else if (c == '/' && ensure(2) && buf[pos + 1] == '*') {
+                pos += 2;
+                while (ensure(1) && !(buf[pos] == '*' && ensure(2) && buf[pos + 1] == '/')) {
+                    if (buf[pos] == '\n') line++;
+                    pos++;
+                }
+                pos = Math.min(pos + 2, length);
+            } else if (isPunctuation(c)) {
+                return;
+            } else if (isDigit(c) || isIdentifierStart(c)) {
+                return;
+            } else {
+                pos++; // whitespace, control and non-ASCII characters never start a token
+            }
+        }
+    }
+
+    // Makes sure n characters are buffered from pos, refilling the window from the reader.
+    // Returns false when the source ends first.
+    private boolean ensure(int n) {
+        if (pos + n <= length) return true;
+        if (reader == null) return false;
+
+        // Drop everything before the token being scanned (or before pos between tokens)
+        int keep = inToken ? tokenStart : pos;
+        if (keep > 0) {
+            System.arraycopy(buf, keep, buf, 0, length - keep);
+            length -= keep;
+            pos -= keep;
+            tokenStart -= keep;
+        }
+        try {
+            while (pos + n > length) {
+                if (length == buf.length) {
+                    buf = Arrays.copyOf(buf, buf.length * 2); // a single token larger than the window
+                }
+                int read = reader.read(buf, length, buf.length - length);
+                if (read < 0) return false;
+                length += read;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return true;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isIdentifierStart(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_';
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return isIdentifierStart(c) || isDigit(c);
+    }
+
+    // Same character class as \p{Punct}
+    private static boolean isPunctuation(char c) {
+        return (c >= '!' && c <= '/') || (c >= ':' && c <= '@') || (c >= '[' && c <= '`') || (c >= '{' && c <= '~');
+    }
+}
@@ -1,10 +1,26 @@
 package cs5250_project10and11_nand2tetris;
 import java.util.*;
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
 
 public class Main {
     public static void main(String[] args) {
+        // --daemon, --use-daemon and --stop-daemon talk to a long-lived compile server
+        if (CompileDaemon.handles(args)) {
+            System.exit(CompileDaemon.run(args));
+        }
+
+        // With arguments, compile once and exit: Main [options] <file.jack|directory>...
+        if (args.length > 0) {
+            System.exit(compileOnce(args));
+        }
+
+        CompilerOptions options = new CompilerOptions();
+
     	Scanner scanner = new Scanner(System.in);
     	
     	System.out.println("Welcome to Jack Compiler");
@@ -19,6 +35,148 @@ public class Main {
                 scanner.close();
                 break;
             }
+
+            // '/lexer scanner|regex|streaming' picks the lexer used for compiling
+            if (inputPath.startsWith("/lexer ")) {
+                try {
+                    options.lexing = CompilerOptions.parseLexing(inputPath.substring(7));
+                    System.out.println("Using " + options.lexing + " lexer.");
+                } catch (IllegalArgumentException e) {
+                    System.out.println("Unknown lexer, expected 'scanner', 'regex' or 'streaming'.");
+                }
+                continue;
+            }
+
+            // '/pipeline single|ast' picks single-pass or syntax-tree code generation
+            if (inputPath.startsWith("/pipeline ")) {
+                try {
+                    options.pipeline = CompilerOptions.parsePipeline(inputPath.substring(10));
+                    System.out.println("Using " + options.pipeline + " pipeline.");
+                } catch (IllegalArgumentException e) {
+                    System.out.println(e.getMessage());
+                }
+                continue;
+            }
+
+            // '/fold' toggles constant folding
+            if (inputPath.equals("/fold")) {
+                options.fold = !options.fold;
+                System.out.println("Constant folding " + (options.fold ? "on." : "off."));
+                continue;
+            }
+
+            // '/strength N' lowers multiplies by constants that take at most N commands (0 = off)
+            if (inputPath.startsWith("/strength ")) {
+                try {
+                    options.multiplyLimit = CompilerOptions.parseCount("/strength", inputPath.substring(10));
+                    System.out.println("Strength reduction limit " + options.multiplyLimit + ".");
+                } catch (IllegalArgumentException e) {
+                    System.out.println(e.getMessage());
+                }
+                continue;
+            }
+
+            // '/pool' toggles building each string literal only once
+            if (inputPath.equals("/pool")) {
+                options.poolStrings = !options.poolStrings;
+                System.out.println("String pooling " + (options.poolStrings ? "on." : "off."));
+                continue;
+            }
+
+            // '/whole' toggles dropping subroutines unreachable from Main.main
+            if (inputPath.equals("/whole")) {
+                options.wholeProgram = !options.wholeProgram;
+                System.out.println("Whole-program mode " + (options.wholeProgram ? "on." : "off."));
+                continue;
+            }
+
+            // '/inline N' expands small getters, setters and pure functions (0 = off)
+            if (inputPath.startsWith("/inline ")) {
+                try {
+                    options.inlineBudget = CompilerOptions.parseCount("/inline", inputPath.substring(8));
+                    System.out.println("Inlining budget " + options.inlineBudget + ".");
+                } catch (IllegalArgumentException e) {
+                    System.out.println(e.getMessage());
+                }
+                continue;
+            }
+
+            // '/heap' toggles reporting the peak heap used by each compiled file
+            if (inputPath.equals("/heap")) {
+                options.reportHeap = !options.reportHeap;
+                System.out.println("Heap reporting " + (options.reportHeap ? "on." : "off."));
+                continue;
+            }
+
+            // '/jobs N' sets the number of parallel workers (0 = one per core)
+            if (inputPath.startsWith("/jobs ")) {
+                try {
+                    options.jobs = CompilerOptions.parseCount("/jobs", inputPath.substring(6));
+                    System.out.println("Compiling with " + options.workerCount() + " worker(s).");
+                } catch (IllegalArgumentException e) {
+                    System.out.println(e.getMessage());
+                }
+                continue;
+            }
+
+            // '/recursive' toggles collecting .jack files from subdirectories
+            if (inputPath.equals("/recursive")) {
+                options.recursive = !options.recursive;
+                System.out.println("Recursive discovery " + (options.recursive ? "on." : "off."));
+                continue;
+            }
+
+            // '/incremental' toggles skipping files that have not changed since the last build
+            if (inputPath.equals("/incremental")) {
+                options.incremental = !options.incremental;
+                System.out.println("Incremental builds " + (options.incremental ? "on." : "off."));
+                continue;
+            }
+
+            // '/vmb' toggles writing binary .vmb files instead of .vm
+            if (inputPath.equals("/vmb")) {
+                options.binary = !options.binary;
+                System.out.println("Binary VM output " + (options.binary ? "on." : "off."));
+                continue;
+            }
+
+            // '/asm' toggles linking each program into one Hack .asm file instead of writing .vm files
+            if (inputPath.equals("/asm")) {
+                options.asm = !options.asm;
+                System.out.println("Hack assembly output " + (options.asm ? "on." : "off."));
+                continue;
+            }
+
+            // '/emit tokens,xml,vm' picks the files written for each source ('all' for all three)
+            if (inputPath.startsWith("/emit ")) {
+                try {
+                    options.outputs = JackCompiler.Output.parse(inputPath.substring(6));
+                    System.out.println("Writing " + options.outputs + ".");
+                } catch (IllegalArgumentException e) {
+                    System.out.println(e.getMessage());
+                }
+                continue;
+            }
+
+            // '/stats' toggles the per-phase timing table printed after each compile
+            if (inputPath.equals("/stats")) {
+                options.stats = !options.stats;
+                System.out.println("Compile stats " + (options.stats ? "on." : "off."));
+                continue;
+            }
+
+            // '/verbose' toggles per-subroutine progress output
+            if (inputPath.equals("/verbose")) {
+                options.verbose = !options.verbose;
+                System.out.println("Verbose output " + (options.verbose ? "on." : "off."));
+                continue;
+            }
+
+            // '/compare <path>' checks that all lexers produce the same tokens
+            boolean compareLexers = inputPath.startsWith("/compare ");
+            if (compareLexers) {
+                inputPath = inputPath.substring(9).trim();
+            }
             
             File inputFile = new File(inputPath);
             System.out.println("Checking: " + inputFile.getAbsolutePath());
@@ -33,45 +191,213 @@ public class Main {
                 continue;
             }
             
-            List<File> jackFiles = new ArrayList<>();
-            if (inputFile.isDirectory()) {
-                for (File file : Objects.requireNonNull(inputFile.listFiles())) {
-                    if (file.getName().endsWith(".jack")) {
-                        jackFiles.add(file);
+            if (!inputFile.isDirectory() && !inputFile.getName().endsWith(".jack")) {
+                System.out.println("This is not a .jack file.");
+                continue;
+            }
+            List<File> jackFiles = JackCompiler.findJackFiles(inputFile, options.recursive);
+
+            if (compareLexers) {
+                for (File jack : jackFiles) {
+                    try {
+                        String difference = Tokenizer.compareLexers(jack, Tokenizer.Lexing.REGEX);
+                        if (difference == null) {
+                            difference = Tokenizer.compareLexers(jack, Tokenizer.Lexing.STREAMING);
+                        }
+                        if (difference == null) {
+                            System.out.println("Lexers agree: " + jack.getName());
+                        } else {
+                            System.out.println("Lexers differ in " + jack.getName() + ": " + difference);
+                        }
+                    } catch (IOException e) {
+                        System.err.println("Error reading file: " + jack.getName());
                     }
                 }
-            } else if (inputFile.getName().endsWith(".jack")) {
-                jackFiles.add(inputFile);
-            } else {
-                System.out.println("This is not a .jack file.");
                 continue;
             }
 
-            for (File jack : jackFiles) {
+            // Project 10 (XT.xml, X.xml) and project 11 (X.vm) outputs, as selected with /emit
+            new JackCompiler(options).compile(jackFiles, System.out, System.err);
+        }
+        scanner.close();
+    }
+
+    // Command-line compile in this process; returns the process exit code.
+    static int compileOnce(String[] args) {
+        if (args[0].equals("--vmb-to-vm")) {
+            return convertBinary(Arrays.copyOfRange(args, 1, args.length));
+        }
+        if (args[0].equals("--generate")) {
+            return generate(Arrays.copyOfRange(args, 1, args.length));
+        }
+        if (args[0].equals("--run")) {
+            return run(Arrays.copyOfRange(args, 1, args.length));
+        }
+        CompilerOptions options = new CompilerOptions();
+        List<String> paths;
+        try {
+            paths = options.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(CompilerOptions.USAGE);
+            return 2;
+        }
+        if (paths.isEmpty()) {
+            System.err.println(CompilerOptions.USAGE);
+            return 2;
+        }
+        List<File> inputs = new ArrayList<>();
+        for (String path : paths) {
+            inputs.add(new File(path));
+        }
+        return build(inputs, options, System.out, System.err);
+    }
+
+    // Writes a synthetic Jack program into the given directory
+    private static int generate(String[] args) {
+        CorpusGenerator.Settings settings = new CorpusGenerator.Settings();
+        List<String> paths;
+        try {
+            paths = settings.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(CorpusGenerator.Settings.USAGE);
+            return 2;
+        }
+        if (paths.size() != 1) {
+            System.err.println(CorpusGenerator.Settings.USAGE);
+            return 2;
+        }
+        try {
+            long bytes = 0;
+            List<File> files = new CorpusGenerator(settings).write(new File(paths.get(0)));
+            for (File file : files) bytes += file.length();
+            System.out.println("Generated " + files.size() + " classes, " + bytes / 1024 + " KB in " + paths.get(0));
+            return 0;
+        } catch (IOException e) {
+            System.err.println("Error writing " + paths.get(0) + ": " + e.getMessage());
+            return 1;
+        }
+    }
+
+    // Compiles the .jack files of each program (if any) with the given options, then runs its
+    // .vm or .vmb files in the interpreter and prints what they cost
+    private static int run(String[] args) {
+        CompilerOptions options = new CompilerOptions();
+        List<String> compilerArgs = new ArrayList<>();
+        long maxSteps = 0;
+        boolean profile = false;
+        File input = null;
+        List<String> paths;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--max-steps" -> maxSteps = parseSteps(CompilerOptions.value(args, ++i, args[i - 1]));
+                    case "--profile" -> profile = true;
+                    case "--input" -> input = new File(CompilerOptions.value(args, ++i, args[i - 1]));
+                    default -> compilerArgs.add(args[i]);
+                }
+            }
+            paths = options.parse(compilerArgs.toArray(new String[0]));
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(CompilerOptions.USAGE);
+            return 2;
+        }
+        if (paths.isEmpty()) {
+            System.err.println(CompilerOptions.USAGE);
+            return 2;
+        }
+        if (options.asm) {
+            System.err.println("--run interprets VM code; build without --asm");
+            return 2;
+        }
+
+        int failures = 0;
+        try (BufferedReader in = new BufferedReader(input != null ? new FileReader(input) : new InputStreamReader(System.in))) {
+            for (String path : paths) {
+                File program = new File(path);
+                List<File> jackFiles = JackCompiler.findJackFiles(program, false);
+                List<File> vmFiles = new ArrayList<>();
+                if (!jackFiles.isEmpty()) {
+                    if (build(List.of(program), options, System.out, System.err) != 0) return 1;
+                    JackCompiler compiler = new JackCompiler(options);
+                    for (File jack : jackFiles) vmFiles.add(compiler.outputFileFor(jack));
+                } else {
+                    vmFiles = VMInterpreter.programFiles(program);
+                }
+                if (vmFiles.isEmpty()) {
+                    System.err.println("No .jack, .vm or .vmb files in " + path);
+                    failures++;
+                    continue;
+                }
+                VMInterpreter vm;
                 try {
-                	// Project 10
-                	// String tokenXmlName = jack.getName().replace(".jack", "T.xml");
-                	// File tokenOutput = new File(jack.getParentFile(), tokenXmlName);
-                	// Tokenizer.exportTokensToXml(jack, tokenOutput);
-
-                    // String outputName = jack.getName().replace(".jack", ".xml");
-                    // File outputFile = new File(jack.getParentFile(), outputName);
-                    // new Parser(jack, outputFile); // Parses and writes XML
-                    // System.out.println("Saving XML to: " + outputFile.getAbsolutePath());
-                    // System.out.println("Parsed: " + outputFile.getName());
-                    
-                    // Project 11
-                    String vmName = jack.getName().replace(".jack", ".vm");
-                    File vmFile = new File(jack.getParentFile(), vmName);
-                    new CompilationEngine(jack, vmFile);
-                    System.out.println("Generated VM: " + vmFile.getAbsolutePath());
+                    vm = VMInterpreter.load(vmFiles);
                 } catch (IOException e) {
-                    System.err.println("Error parsing file: " + jack.getName());
-                    e.printStackTrace();
+                    System.err.println("Error loading " + path + ": " + e.getMessage());
+                    failures++;
+                    continue;
                 }
-            }            
+                VMInterpreter.Run result = vm.run(in, System.out, maxSteps);
+                System.out.println();
+                System.out.print(vm.report(result, profile));
+                if (result.status == VMInterpreter.Status.FAILED) failures++;
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading input: " + e.getMessage());
+            return 1;
         }
-        scanner.close();
+        return failures == 0 ? 0 : 1;
+    }
+
+    private static long parseSteps(String value) {
+        try {
+            long steps = Long.parseLong(value.trim());
+            if (steps >= 0) return steps;
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new IllegalArgumentException("--max-steps expects a non-negative number, got '" + value + "'");
+    }
+
+    // Writes X.vm next to each X.vmb, for reading binary output while debugging
+    private static int convertBinary(String[] paths) {
+        if (paths.length == 0) {
+            System.err.println(CompilerOptions.USAGE);
+            return 2;
+        }
+        int failures = 0;
+        for (String path : paths) {
+            File vmb = new File(path);
+            File vm = new File(vmb.getParentFile(), vmb.getName().replaceFirst("\\.vmb$", "") + ".vm");
+            try {
+                BinaryVMReader.toText(vmb, vm);
+                System.out.println("Converted: " + vm.getAbsolutePath());
+            } catch (IOException e) {
+                System.err.println("Error converting " + path + ": " + e.getMessage());
+                failures++;
+            }
+        }
+        return failures == 0 ? 0 : 1;
     }
-}
 
+    // Compiles every input file or directory; returns the process exit code.
+    static int build(List<File> inputs, CompilerOptions options, PrintStream out, PrintStream err) {
+        List<File> jackFiles = new ArrayList<>();
+        for (File input : inputs) {
+            if (!input.exists()) {
+                err.println("File or folder does not exist: " + input.getPath());
+                return 1;
+            }
+            List<File> found = JackCompiler.findJackFiles(input, options.recursive);
+            if (found.isEmpty() && !input.isDirectory()) {
+                err.println("This is not a .jack file: " + input.getPath());
+                return 1;
+            }
+            jackFiles.addAll(found);
+        }
+        int failures = new JackCompiler(options).compile(jackFiles, out, err);
+        return failures == 0 ? 0 : 1;
+    }
+}
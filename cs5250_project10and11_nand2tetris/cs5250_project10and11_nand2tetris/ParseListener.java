@@ -0,0 +1,51 @@
+package cs5250_project10and11_nand2tetris;
+
+// Receives the events of one Parser run, SAX style: enter/exit around each grammar rule and
+// one token() per terminal, in source order. Every method has an empty default, so a listener
+// only overrides what it needs; a metrics pass that ignores tokens never turns them into text.
+//
+// token() gets the tokenizer positioned on the terminal. Read it with tokenType(), keyWord(),
+// symbol(), identifier(), intVal() or stringVal() during the call; it moves on afterwards.
+public interface ParseListener {
+    // The non-terminals of the Jack grammar, with their tags in the project 10 XML
+    enum Rule {
+        CLASS("class"),
+        CLASS_VAR_DEC("classVarDec"),
+        SUBROUTINE_DEC("subroutineDec"),
+        PARAMETER_LIST("parameterList"),
+        SUBROUTINE_BODY("subroutineBody"),
+        VAR_DEC("varDec"),
+        STATEMENTS("statements"),
+        LET_STATEMENT("letStatement"),
+        IF_STATEMENT("ifStatement"),
+        WHILE_STATEMENT("whileStatement"),
+        DO_STATEMENT("doStatement"),
+        RETURN_STATEMENT("returnStatement"),
+        EXPRESSION("expression"),
+        TERM("term"),
+        EXPRESSION_LIST("expressionList");
+
+        private final String xmlTag;
+
+        Rule(String xmlTag) {
+            this.xmlTag = xmlTag;
+        }
+
+        public String xmlTag() {
+            return xmlTag;
+        }
+    }
+
+    default void enter(Rule rule) {
+    }
+
+    default void exit(Rule rule) {
+    }
+
+    default void token(Tokenizer token) {
+    }
+
+    // Called once after the class has been parsed, e.g. to flush and close output
+    default void end() {
+    }
+}
@@ -1,146 +1,161 @@
 package cs5250_project10and11_nand2tetris;
 import java.io.*;
 
+import cs5250_project10and11_nand2tetris.ParseListener.Rule;
+import cs5250_project10and11_nand2tetris.Tokenizer.Keyword;
+import cs5250_project10and11_nand2tetris.Tokenizer.TokenType;
+
 // PROJECT 10 SESSION
 // Code Generation & Syntax Analysis
 // Ref: https://github.com/zhixiangli/nand2tetris/blob/main/projects/10/parser.py
 public class Parser {
-	private Tokenizer tokenizer;
-    private PrintWriter writer;
+	private final Tokenizer tokenizer;
+    private final ParseListener[] listeners;
 
     public Parser(File input, File output) throws IOException {
-        tokenizer = new Tokenizer(input);	// Import Tokenizer.class
-        writer = new PrintWriter(output);	// Print output to file
-        
+        this(input, output, Tokenizer.Lexing.SCANNER);
+    }
+
+    public Parser(File input, File output, Tokenizer.Lexing lexing) throws IOException {
+        this(new Tokenizer(input, lexing), output);	// Import Tokenizer.class
+    }
+
+    // Parses from a tokenizer that has not been advanced yet, e.g. one shared with other outputs
+    public Parser(Tokenizer tokenizer, File output) throws IOException {
+        this(tokenizer, new XmlParseListener(output));	// Print output to file
+    }
+
+    // Parses the class and reports it to every listener in the same pass
+    public Parser(Tokenizer tokenizer, ParseListener... listeners) {
+        this.tokenizer = tokenizer;
+        this.listeners = listeners;
+
         tokenizer.advance(); // Start the first token
         compileClass();
-        writer.close();
+        tokenizer.close();
+        for (ParseListener listener : listeners) {
+            listener.end();
+        }
     }
 
-    private void writeTag(String tag, String content) {
-        writer.printf("<%s> %s </%s>%n", tag, escapeXml(content), tag);
+    private void enter(Rule rule) {
+        for (ParseListener listener : listeners) {
+            listener.enter(rule);
+        }
     }
 
-    private void writeToken() {
-        String type = tokenizer.tokenType();
-        String value = switch (type) {
-            case "KEYWORD"     -> tokenizer.keyWord();
-            case "SYMBOL"      -> String.valueOf(tokenizer.symbol());
-            case "IDENTIFIER"  -> tokenizer.identifier();
-            case "INT_CONST"   -> String.valueOf(tokenizer.intVal());
-            case "STRING_CONST"-> tokenizer.stringVal();
-            default            -> "";
-        };
+    private void exit(Rule rule) {
+        for (ParseListener listener : listeners) {
+            listener.exit(rule);
+        }
+    }
 
-        writeTag(xmlTag(type), value);
+    private void writeToken() {
+        for (ParseListener listener : listeners) {
+            listener.token(tokenizer);
+        }
         tokenizer.advance();
     }
 
     private void compileClass() {
-        writer.println("<class>");
+        enter(Rule.CLASS);
 
         writeToken(); // 'class'
         writeToken(); // className (identifier)
         writeToken(); // '{'
 
-        while (tokenizer.tokenType().equals("KEYWORD") &&
-              (tokenizer.keyWord().equals("static") || tokenizer.keyWord().equals("field"))) {
+        while (tokenizer.keywordIs(Keyword.STATIC) || tokenizer.keywordIs(Keyword.FIELD)) {
             compileClassVarDec();
         }
 
-        while (tokenizer.tokenType().equals("KEYWORD") &&
-              (tokenizer.keyWord().equals("constructor") || tokenizer.keyWord().equals("function") || tokenizer.keyWord().equals("method"))) {
+        while (tokenizer.keywordIs(Keyword.CONSTRUCTOR) || tokenizer.keywordIs(Keyword.FUNCTION) || tokenizer.keywordIs(Keyword.METHOD)) {
             compileSubroutine();
         }
 
         writeToken(); // '}'
-        writer.println("</class>");
+        exit(Rule.CLASS);
     }
 
     
     // Compile variable declarations.
     private void compileVarDec() {
-        writer.println("<varDec>");
-        while (!tokenizer.tokenType().equals("SYMBOL") || !tokenizer.symbolIs(';')) {
+        enter(Rule.VAR_DEC);
+        while (!tokenizer.symbolIs(';')) {
             writeToken();
         }
         writeToken(); // ';'
-        writer.println("</varDec>");
+        exit(Rule.VAR_DEC);
     }
 
     private void compileClassVarDec() {
-        writer.println("<classVarDec>");
-        while (!tokenizer.tokenType().equals("SYMBOL") || !tokenizer.symbolIs(';')) {
+        enter(Rule.CLASS_VAR_DEC);
+        while (!tokenizer.symbolIs(';')) {
             writeToken();
         }
         writeToken(); // ';'
-        writer.println("</classVarDec>");
+        exit(Rule.CLASS_VAR_DEC);
     }
 
 
     private void compileSubroutine() {
-        writer.println("<subroutineDec>");
-        while (!tokenizer.tokenType().equals("SYMBOL") || !tokenizer.symbolIs('(')) {
+        enter(Rule.SUBROUTINE_DEC);
+        while (!tokenizer.symbolIs('(')) {
             writeToken();
         }
         writeToken(); // (
         compileParameterList();
         writeToken(); // )
     
-        writer.println("<subroutineBody>");
+        enter(Rule.SUBROUTINE_BODY);
         writeToken(); // {
-        while (tokenizer.tokenType().equals("KEYWORD") && tokenizer.keyWord().equals("var")) {
+        while (tokenizer.keywordIs(Keyword.VAR)) {
             compileVarDec();
         }
         compileStatements(); 
         writeToken(); // }
-        writer.println("</subroutineBody>");
-        writer.println("</subroutineDec>");
+        exit(Rule.SUBROUTINE_BODY);
+        exit(Rule.SUBROUTINE_DEC);
     }
 
     private void compileParameterList() {
-        writer.println("<parameterList>");
-        if (!tokenizer.tokenType().equals("SYMBOL") || !tokenizer.symbolIs(')')) {
+        enter(Rule.PARAMETER_LIST);
+        if (!tokenizer.symbolIs(')')) {
             writeToken(); // type
             writeToken(); // varName
     
-            while (tokenizer.tokenType().equals("SYMBOL") && tokenizer.symbolIs(',')) {
+            while (tokenizer.symbolIs(',')) {
                 writeToken(); // ,
                 writeToken(); // type
                 writeToken(); // varName
             }
         }
-        writer.println("</parameterList>");
+        exit(Rule.PARAMETER_LIST);
     }
 
     
     private void compileStatements() {
-        writer.println("<statements>");
-        while (tokenizer.tokenType().equals("KEYWORD")) {
-            String kw = tokenizer.keyWord();
-            if (kw.equals("let")) {
-                compileLet();
-            } else if (kw.equals("if")) {
-                compileIf();
-            } else if (kw.equals("while")) {
-                compileWhile();
-            } else if (kw.equals("do")) {
-                compileDo();
-            } else if (kw.equals("return")) {
-                compileReturn();
-            } else {
-                return; // Ignore
+        enter(Rule.STATEMENTS);
+        while (tokenizer.tokenType() == TokenType.KEYWORD) {
+            switch (tokenizer.keyWord()) {
+                case LET -> compileLet();
+                case IF -> compileIf();
+                case WHILE -> compileWhile();
+                case DO -> compileDo();
+                case RETURN -> compileReturn();
+                default -> {
+                    return; // Ignore
+                }
             }
         }
-        writer.println("</statements>");
+        exit(Rule.STATEMENTS);
     }
 
     private void compileLet() {
-        writer.println("<letStatement>");
+        enter(Rule.LET_STATEMENT);
         writeToken(); // 'let'
         writeToken(); // varName
     
-        if (tokenizer.tokenType().equals("SYMBOL") && tokenizer.symbolIs('[')) {
+        if (tokenizer.symbolIs('[')) {
             writeToken(); // '['
             compileExpression();
             writeToken(); // ']'
@@ -149,11 +164,11 @@ public class Parser {
         writeToken(); // '='
         compileExpression();
         writeToken(); // ';'
-        writer.println("</letStatement>");
+        exit(Rule.LET_STATEMENT);
     }
 
     private void compileIf() {
-        writer.println("<ifStatement>");
+        enter(Rule.IF_STATEMENT);
         writeToken(); // 'if'
         writeToken(); // '('
         compileExpression();
@@ -162,18 +177,18 @@ public class Parser {
         compileStatements();
         writeToken(); // '}'
     
-        if (tokenizer.tokenType().equals("KEYWORD") && tokenizer.keyWord().equals("else")) {
+        if (tokenizer.keywordIs(Keyword.ELSE)) {
             writeToken(); // 'else'
             writeToken(); // '{'
             compileStatements();
             writeToken(); // '}'
         }
     
-        writer.println("</ifStatement>");
+        exit(Rule.IF_STATEMENT);
     }
 
     private void compileWhile() {
-        writer.println("<whileStatement>");
+        enter(Rule.WHILE_STATEMENT);
         writeToken(); // 'while'
         writeToken(); // '('
         compileExpression();
@@ -181,14 +196,14 @@ public class Parser {
         writeToken(); // '{'
         compileStatements();
         writeToken(); // '}'
-        writer.println("</whileStatement>");
+        exit(Rule.WHILE_STATEMENT);
     }
 
     private void compileDo() {
-        writer.println("<doStatement>");
+        enter(Rule.DO_STATEMENT);
         writeToken(); // 'do'
         writeToken(); // subroutineName or className or varName
-        if (tokenizer.tokenType().equals("SYMBOL") && tokenizer.symbolIs('.')) {
+        if (tokenizer.symbolIs('.')) {
             writeToken(); // '.'
             writeToken(); // subroutineName
         }
@@ -196,35 +211,29 @@ public class Parser {
         compileExpressionList();
         writeToken(); // ')'
         writeToken(); // ';'
-        writer.println("</doStatement>");
+        exit(Rule.DO_STATEMENT);
     }
 
     private void compileReturn() {
-        writer.println("<returnStatement>");
+        enter(Rule.RETURN_STATEMENT);
         writeToken(); // 'return'
-        if (!tokenizer.tokenType().equals("SYMBOL") || !tokenizer.symbolIs(';')) {
+        if (!tokenizer.symbolIs(';')) {
             compileExpression();
         }
         writeToken(); // ';'
-        writer.println("</returnStatement>");
+        exit(Rule.RETURN_STATEMENT);
     }    
 
 
     private void compileTerm() {
-        writer.println("<term>");
+        enter(Rule.TERM);
     
-        String type = tokenizer.tokenType();
+        switch (tokenizer.tokenType()) {
+            case INT_CONST, STRING_CONST -> writeToken();
+            case KEYWORD -> writeToken(); // true, false, null, this
+            case IDENTIFIER -> {
+                writeToken(); // varName or subroutineName or className
     
-        if (type.equals("INT_CONST")) {
-            writeToken();
-        } else if (type.equals("STRING_CONST")) {
-            writeToken();
-        } else if (type.equals("KEYWORD")) {
-            writeToken(); // true, false, null, this
-        } else if (type.equals("IDENTIFIER")) {
-            writeToken(); // varName or subroutineName or className
-    
-            if (tokenizer.tokenType().equals("SYMBOL")) {
                 if (tokenizer.symbolIs('[')) {
                     writeToken(); // '['
                     compileExpression();
@@ -241,71 +250,49 @@ public class Parser {
                     writeToken(); // ')'
                 }
             }
-        } else if (type.equals("SYMBOL") && tokenizer.symbolIs('(')) {
-            writeToken(); // '('
-            compileExpression();
-            writeToken(); // ')'
-        } else if (type.equals("SYMBOL") && (tokenizer.symbolIs('-') || tokenizer.symbolIs('~'))) {
-            writeToken(); // unaryOp
-            compileTerm();
+            case SYMBOL -> {
+                if (tokenizer.symbolIs('(')) {
+                    writeToken(); // '('
+                    compileExpression();
+                    writeToken(); // ')'
+                } else if (tokenizer.symbolIs('-') || tokenizer.symbolIs('~')) {
+                    writeToken(); // unaryOp
+                    compileTerm();
+                }
+            }
+            default -> { }
         }
     
-        writer.println("</term>");
+        exit(Rule.TERM);
     }    
 
 
     private void compileExpression() {
-        writer.println("<expression>");
+        enter(Rule.EXPRESSION);
         compileTerm();
-        while (tokenizer.tokenType().equals("SYMBOL") &&
-               "+-*/&|<>=~".contains(String.valueOf(tokenizer.symbol()))) {
+        while (tokenizer.tokenType() == TokenType.SYMBOL && isOp(tokenizer.symbol())) {
             writeToken(); // operator
             compileTerm();
         }
-        writer.println("</expression>");
+        exit(Rule.EXPRESSION);
     }   
     
     private void compileExpressionList() {
-        writer.println("<expressionList>");
-        if (!tokenizer.tokenType().equals("SYMBOL") || !tokenizer.symbolIs(')')) {
+        enter(Rule.EXPRESSION_LIST);
+        if (!tokenizer.symbolIs(')')) {
             compileExpression();
-            while (tokenizer.tokenType().equals("SYMBOL") && tokenizer.symbolIs(',')) {
+            while (tokenizer.symbolIs(',')) {
                 writeToken(); // ','
                 compileExpression();
             }
         }
-        writer.println("</expressionList>");
+        exit(Rule.EXPRESSION_LIST);
     }    
 
-    private static String xmlTag(String type) {
-    	if (type.equals("INT_CONST")) {
-            return "integerConstant";
-        } else if (type.equals("STRING_CONST")) {
-            return "stringConstant";
-        } else if (type.equals("KEYWORD")) {
-            return "keyword";
-        } else if (type.equals("SYMBOL")) {
-            return "symbol";
-        } else if (type.equals("IDENTIFIER")) {
-            return "identifier";
-        } else {
-            return "unknown";
-        }
-    }
-
-    private static String escapeXml(String input) {
-        if (input.contains("&")) {
-            input = input.replace("&", "&amp;");
-        }
-        else if (input.contains("<")) {
-            input = input.replace("<", "&lt;");
-        }
-        else if (input.contains(">")) {
-            input = input.replace(">", "&gt;");
-        }
-        else if (input.contains("\"")) {
-            input = input.replace("\"", "&quot;");
-        }
-        return input;
+    private static boolean isOp(char c) {
+        return switch (c) {
+            case '+', '-', '*', '/', '&', '|', '<', '>', '=', '~' -> true;
+            default -> false;
+        };
     }
 }
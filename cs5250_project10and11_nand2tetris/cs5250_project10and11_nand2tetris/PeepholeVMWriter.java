@@ -0,0 +1,335 @@
+package cs5250_project10and11_nand2tetris;
+
+import java.util.*;
+
+// VMWriter stage that sits between the code generator and the real writer. It buffers the
+// commands of one function, rewrites them with a set of small pattern rules until nothing
+// changes, then passes the result on. VM labels are local to their function, so a function
+// is the natural unit for counting label references.
+//
+// Jack treats any non-zero value as true, so a condition is only inverted when the command
+// that produced it is known to leave 0 or -1 (a comparison, or not of one).
+public class PeepholeVMWriter implements VMWriter {
+    public enum Rule {
+        INVERT_IF("invert-if"),             // if-goto A; goto B; label A  ->  not; if-goto B (label A kept if used elsewhere)
+        UNUSED_LABELS("unused-labels"),     // label never targeted by goto/if-goto
+        DOUBLE_NOT("double-not"),           // not; not  and  neg; neg
+        PUSH_POP("push-pop"),               // push S i; pop S i
+        JUMP_THREADING("jump-threading"),   // jumps to a goto go straight to its target; goto to the next command is dropped
+        CONSTANT_BRANCH("constant-branch"), // if-goto on a constant becomes goto or disappears
+        DEAD_CODE("dead-code");             // commands after goto/return that no label makes reachable
+
+        private final String flag;
+
+        Rule(String flag) {
+            this.flag = flag;
+        }
+
+        public String flag() {
+            return flag;
+        }
+
+        static Rule of(String flag) {
+            for (Rule rule : values()) {
+                if (rule.flag.equals(flag)) return rule;
+            }
+            throw new IllegalArgumentException("Unknown peephole rule '" + flag + "'");
+        }
+    }
+
+    private enum Op { PUSH, POP, ARITHMETIC, LABEL, GOTO, IF_GOTO, CALL, FUNCTION, RETURN }
+
+    private static final class Command {
+        final Op op;
+        final String text;  // segment, command, label or function name
+        final int number;   // index, nArgs or nLocals
+
+        Command(Op op, String text, int number) {
+            this.op = op;
+            this.text = text;
+            this.number = number;
+        }
+
+        boolean is(Op op, String text) {
+            return this.op == op && this.text.equals(text);
+        }
+    }
+
+    private final VMWriter out;
+    private final EnumSet<Rule> rules;
+    private final int[] removed = new int[Rule.values().length];
+    private List<Command> function = new ArrayList<>();
+
+    public PeepholeVMWriter(VMWriter out, Set<Rule> rules) {
+        this.out = out;
+        this.rules = rules.isEmpty() ? EnumSet.noneOf(Rule.class) : EnumSet.copyOf(rules);
+    }
+
+    // Commands removed so far by each rule, indexed by Rule.ordinal()
+    public int[] removedCounts() {
+        return removed.clone();
+    }
+
+    public void writePush(String segment, int index) {
+        function.add(new Command(Op.PUSH, segment, index));
+    }
+
+    public void writePop(String segment, int index) {
+        function.add(new Command(Op.POP, segment, index));
+    }
+
+    public void writeArithmetic(String command) {
+        function.add(new Command(Op.ARITHMETIC, command, 0));
+    }
+
+    public void writeLabel(String label) {
+        function.add(new Command(Op.LABEL, label, 0));
+    }
+
+    public void writeGoto(String label) {
+        function.add(new Command(Op.GOTO, label, 0));
+    }
+
+    public void writeIf(String label) {
+        function.add(new Command(Op.IF_GOTO, label, 0));
+    }
+
+    public void writeCall(String name, int nArgs) {
+        function.add(new Command(Op.CALL, name, nArgs));
+    }
+
+    public void writeFunction(String name, int nLocals) {
+        flushFunction();
+        function.add(new Command(Op.FUNCTION, name, nLocals));
+    }
+
+    public void writeReturn() {
+        function.add(new Command(Op.RETURN, "", 0));
+    }
+
+    public void close() {
+        flushFunction();
+        out.close();
+    }
+
+    private void flushFunction() {
+        boolean changed = !rules.isEmpty();
+        while (changed) {
+            changed = false;
+            if (rules.contains(Rule.DOUBLE_NOT)) changed |= collapseNegations();
+            if (rules.contains(Rule.PUSH_POP)) changed |= dropPushPop();
+            if (rules.contains(Rule.CONSTANT_BRANCH)) changed |= foldConstantBranches();
+            if (rules.contains(Rule.INVERT_IF)) changed |= invertConditions();
+            if (rules.contains(Rule.JUMP_THREADING)) changed |= threadJumps();
+            if (rules.contains(Rule.DEAD_CODE)) changed |= dropDeadCode();
+            if (rules.contains(Rule.UNUSED_LABELS)) changed |= dropUnusedLabels();
+        }
+        for (Command command : function) {
+            replay(command);
+        }
+        function.clear();
+    }
+
+    private void replay(Command command) {
+        switch (command.op) {
+            case PUSH -> out.writePush(command.text, command.number);
+            case POP -> out.writePop(command.text, command.number);
+            case ARITHMETIC -> out.writeArithmetic(command.text);
+            case LABEL -> out.writeLabel(command.text);
+            case GOTO -> out.writeGoto(command.text);
+            case IF_GOTO -> out.writeIf(command.text);
+            case CALL -> out.writeCall(command.text, command.number);
+            case FUNCTION -> out.writeFunction(command.text, command.number);
+            case RETURN -> out.writeReturn();
+        }
+    }
+
+    // Replaces the function body and counts the difference against the rule
+    private boolean update(List<Command> rewritten, Rule rule) {
+        int difference = function.size() - rewritten.size();
+        if (difference == 0 && rewritten.equals(function)) return false;
+        removed[rule.ordinal()] += difference;
+        function = rewritten;
+        return true;
+    }
+
+    private boolean collapseNegations() {
+        List<Command> result = new ArrayList<>(function.size());
+        for (Command command : function) {
+            Command last = result.isEmpty() ? null : result.get(result.size() - 1);
+            if (last != null && command.op == Op.ARITHMETIC && last.op == Op.ARITHMETIC
+                    && command.text.equals(last.text) && (command.text.equals("not") || command.text.equals("neg"))) {
+                result.remove(result.size() - 1);
+            } else {
+                result.add(command);
+            }
+        }
+        return update(result, Rule.DOUBLE_NOT);
+    }
+
+    private boolean dropPushPop() {
+        List<Command> result = new ArrayList<>(function.size());
+        for (Command command : function) {
+            Command last = result.isEmpty() ? null : result.get(result.size() - 1);
+            if (last != null && command.op == Op.POP && last.op == Op.PUSH
+                    && command.text.equals(last.text) && command.number == last.number) {
+                result.remove(result.size() - 1);
+            } else {
+                result.add(command);
+            }
+        }
+        return update(result, Rule.PUSH_POP);
+    }
+
+    // push constant 0; if-goto X  never jumps; push constant k; if-goto X (k != 0), and
+    // push constant 0; not; if-goto X, always do
+    private boolean foldConstantBranches() {
+        List<Command> result = new ArrayList<>(function.size());
+        for (Command command : function) {
+            int n = result.size();
+            if (command.op == Op.IF_GOTO && n >= 1 && result.get(n - 1).op == Op.PUSH
+                    && result.get(n - 1).text.equals("constant")) {
+                boolean taken = result.get(n - 1).number != 0;
+                result.remove(n - 1);
+                if (taken) result.add(new Command(Op.GOTO, command.text, 0));
+            } else if (command.op == Op.IF_GOTO && n >= 2 && result.get(n - 1).is(Op.ARITHMETIC, "not")
+                    && result.get(n - 2).op == Op.PUSH && result.get(n - 2).text.equals("constant")
+                    && result.get(n - 2).number == 0) {
+                result.remove(n - 1);
+                result.remove(n - 2);
+                result.add(new Command(Op.GOTO, command.text, 0));
+            } else {
+                result.add(command);
+            }
+        }
+        return update(result, Rule.CONSTANT_BRANCH);
+    }
+
+    // if-goto A; goto B; label A  ->  not; if-goto B; label A
+    // Dropping label A in the same step when nothing else jumps to it is what saves a command.
+    private boolean invertConditions() {
+        Map<String, Integer> references = countReferences();
+        List<Command> result = new ArrayList<>(function.size());
+        for (int i = 0; i < function.size(); i++) {
+            Command command = function.get(i);
+            if (command.op == Op.IF_GOTO && i + 2 < function.size()
+                    && function.get(i + 1).op == Op.GOTO
+                    && function.get(i + 2).is(Op.LABEL, command.text)
+                    && isBoolean(result, result.size() - 1)) {
+                result.add(new Command(Op.ARITHMETIC, "not", 0));
+                result.add(new Command(Op.IF_GOTO, function.get(i + 1).text, 0));
+                if (references.getOrDefault(command.text, 0) > 1) {
+                    result.add(function.get(i + 2));
+                }
+                i += 2;
+            } else {
+                result.add(command);
+            }
+        }
+        return update(result, Rule.INVERT_IF);
+    }
+
+    // True when the command at index leaves exactly 0 or -1 on the stack
+    private static boolean isBoolean(List<Command> commands, int index) {
+        if (index < 0) return false;
+        Command command = commands.get(index);
+        if (command.op == Op.PUSH) {
+            return command.text.equals("constant") && command.number == 0;
+        }
+        if (command.op != Op.ARITHMETIC) return false;
+        return switch (command.text) {
+            case "eq", "lt", "gt" -> true;
+            case "not" -> isBoolean(commands, index - 1);
+            default -> false;
+        };
+    }
+
+    private boolean threadJumps() {
+        Map<String, Integer> labels = new HashMap<>();
+        for (int i = 0; i < function.size(); i++) {
+            if (function.get(i).op == Op.LABEL) labels.put(function.get(i).text, i);
+        }
+
+        List<Command> result = new ArrayList<>(function.size());
+        for (int i = 0; i < function.size(); i++) {
+            Command command = function.get(i);
+            if (command.op != Op.GOTO && command.op != Op.IF_GOTO) {
+                result.add(command);
+                continue;
+            }
+            String target = finalTarget(command.text, labels);
+            if (command.op == Op.GOTO && fallsThroughTo(i + 1, target)) {
+                continue; // jump to the next command
+            }
+            if (!target.equals(command.text)) {
+                command = new Command(command.op, target, 0);
+            }
+            result.add(command);
+        }
+        return update(result, Rule.JUMP_THREADING);
+    }
+
+    // Follows label -> goto chains, stopping at cycles
+    private String finalTarget(String label, Map<String, Integer> labels) {
+        Set<String> seen = new HashSet<>();
+        while (seen.add(label)) {
+            Integer at = labels.get(label);
+            if (at == null) break;
+            int next = at + 1;
+            while (next < function.size() && function.get(next).op == Op.LABEL) next++;
+            if (next >= function.size() || function.get(next).op != Op.GOTO) break;
+            label = function.get(next).text;
+        }
+        return label;
+    }
+
+    // True when only labels separate index from label target
+    private boolean fallsThroughTo(int index, String target) {
+        for (int i = index; i < function.size() && function.get(i).op == Op.LABEL; i++) {
+            if (function.get(i).text.equals(target)) return true;
+        }
+        return false;
+    }
+
+    private boolean dropDeadCode() {
+        List<Command> result = new ArrayList<>(function.size());
+        boolean reachable = true;
+        for (Command command : function) {
+            if (command.op == Op.LABEL || command.op == Op.FUNCTION) reachable = true;
+            if (reachable) result.add(command);
+            if (command.op == Op.GOTO || command.op == Op.RETURN) reachable = false;
+        }
+        return update(result, Rule.DEAD_CODE);
+    }
+
+    private boolean dropUnusedLabels() {
+        Map<String, Integer> references = countReferences();
+        List<Command> result = new ArrayList<>(function.size());
+        for (Command command : function) {
+            if (command.op != Op.LABEL || references.containsKey(command.text)) {
+                result.add(command);
+            }
+        }
+        return update(result, Rule.UNUSED_LABELS);
+    }
+
+    private Map<String, Integer> countReferences() {
+        Map<String, Integer> references = new HashMap<>();
+        for (Command command : function) {
+            if (command.op == Op.GOTO || command.op == Op.IF_GOTO) {
+                references.merge(command.text, 1, Integer::sum);
+            }
+        }
+        return references;
+    }
+
+    // Parses a comma-separated list of rule flags, or "all"
+    public static EnumSet<Rule> parseRules(String list) {
+        if (list.trim().equals("all")) return EnumSet.allOf(Rule.class);
+        EnumSet<Rule> rules = EnumSet.noneOf(Rule.class);
+        for (String flag : list.split(",")) {
+            if (!flag.isBlank()) rules.add(Rule.of(flag.trim()));
+        }
+        return rules;
+    }
+}
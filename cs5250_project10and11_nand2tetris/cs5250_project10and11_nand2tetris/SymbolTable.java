@@ -1,7 +1,6 @@
 package cs5250_project10and11_nand2tetris;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
 
 // PROJECT 11 SESSION
 // Reference: https://github.com/zhixiangli/nand2tetris/blob/main/projects/11/symbol_table.py
@@ -24,94 +23,115 @@ public class SymbolTable {
         }
     }
 
-    private static class Symbol {
-        final String type;
-        final SymbolKind kind;
-        final int index;
-
-        Symbol(String type, SymbolKind kind, int index) {
-            this.type = type;
-            this.kind = kind;
-            this.index = index;
+    // An immutable entry; resolve() hands these out so callers need a single lookup per name.
+    // typeId is the type's ID in the intern table, for building qualified method names.
+    public record Symbol(String type, int typeId, SymbolKind kind, int index) {
+        public String segment() {
+            return kind.getVMSegment();
         }
     }
 
-    private final Map<String, Symbol> classScope;
-    private final Map<String, Symbol> subroutineScope;
+    // Both scopes are arrays indexed by identifier ID (see Identifiers), so a lookup is an
+    // array read. Resetting a scope only nulls the slots it filled, listed in the defined
+    // arrays; nothing is reallocated. The running counters, indexed by SymbolKind.ordinal(),
+    // make define() constant time.
+    private final Identifiers ids;
+    private Symbol[] classScope = new Symbol[64];
+    private Symbol[] subroutineScope = new Symbol[64];
+    private int[] classDefined = new int[16];
+    private int[] subroutineDefined = new int[16];
+    private int classSize = 0;
+    private int subroutineSize = 0;
+    private final int[] counts = new int[SymbolKind.values().length];
 
     public SymbolTable() {
-        classScope = new HashMap<>();
-        subroutineScope = new HashMap<>();
+        this(new Identifiers());
     }
 
-    public void startSubroutine() {
-        subroutineScope.clear();
+    public SymbolTable(Identifiers ids) {
+        this.ids = ids;
     }
 
-    public int varCount(SymbolKind kind) {
-        int count = 0;
+    public void startSubroutine() {
+        for (int i = 0; i < subroutineSize; i++) {
+            subroutineScope[subroutineDefined[i]] = null;
+        }
+        subroutineSize = 0;
+        counts[SymbolKind.ARGUMENT.ordinal()] = 0;
+        counts[SymbolKind.LOCAL.ordinal()] = 0;
+    }
 
-        if (kind == SymbolKind.STATIC || kind == SymbolKind.FIELD) {
-            for (Symbol symbol : classScope.values()) {
-                if (symbol.kind == kind) count++;
-            }
-        } else if (kind == SymbolKind.ARGUMENT || kind == SymbolKind.LOCAL) {
-            for (Symbol symbol : subroutineScope.values()) {
-                if (symbol.kind == kind) count++;
-            }
+    // Forgets both scopes so the table can be reused for the next class
+    public void startClass() {
+        for (int i = 0; i < classSize; i++) {
+            classScope[classDefined[i]] = null;
         }
+        classSize = 0;
+        startSubroutine();
+        counts[SymbolKind.STATIC.ordinal()] = 0;
+        counts[SymbolKind.FIELD.ordinal()] = 0;
+    }
 
-        return count;
+    public int varCount(SymbolKind kind) {
+        return counts[kind.ordinal()];
     }
 
     public void define(String name, String type, SymbolKind kind) {
-        int index = varCount(kind);
-        Symbol symbol = new Symbol(type, kind, index);
+        define(ids.intern(name), ids.intern(type), kind);
+    }
+
+    // Same as define(String, String, SymbolKind) with both names given as identifier IDs
+    public void define(int name, int type, SymbolKind kind) {
+        Symbol symbol = new Symbol(ids.name(type), type, kind, counts[kind.ordinal()]++);
 
         if (kind == SymbolKind.STATIC || kind == SymbolKind.FIELD) {
-            classScope.put(name, symbol);
-        } else if (kind == SymbolKind.ARGUMENT || kind == SymbolKind.LOCAL) {
-            subroutineScope.put(name, symbol);
+            if (name >= classScope.length) classScope = Arrays.copyOf(classScope, grow(name));
+            if (classScope[name] == null) {
+                if (classSize == classDefined.length) classDefined = Arrays.copyOf(classDefined, classSize * 2);
+                classDefined[classSize++] = name;
+            }
+            classScope[name] = symbol;
         } else {
-            throw new IllegalArgumentException("Invalid kind: " + kind);
+            if (name >= subroutineScope.length) subroutineScope = Arrays.copyOf(subroutineScope, grow(name));
+            if (subroutineScope[name] == null) {
+                if (subroutineSize == subroutineDefined.length) {
+                    subroutineDefined = Arrays.copyOf(subroutineDefined, subroutineSize * 2);
+                }
+                subroutineDefined[subroutineSize++] = name;
+            }
+            subroutineScope[name] = symbol;
         }
     }
 
+    private static int grow(int id) {
+        return Math.max(64, Integer.highestOneBit(id) * 2);
+    }
+
     public SymbolKind kindOf(String name) {
-        if (subroutineScope.containsKey(name)) {
-            return subroutineScope.get(name).kind;
-        } else if (classScope.containsKey(name)) {
-            return classScope.get(name).kind;
-        } else {
-            return null;
-        }
+        Symbol symbol = resolve(name);
+        return symbol == null ? null : symbol.kind();
     }
 
     public String typeOf(String name) {
-        if (subroutineScope.containsKey(name)) {
-            return subroutineScope.get(name).type;
-        } else if (classScope.containsKey(name)) {
-            return classScope.get(name).type;
-        } else {
-            return null;
-        }
+        Symbol symbol = resolve(name);
+        return symbol == null ? null : symbol.type();
     }
 
     public int indexOf(String name) {
-        if (subroutineScope.containsKey(name)) {
-            return subroutineScope.get(name).index;
-        } else if (classScope.containsKey(name)) {
-            return classScope.get(name).index;
-        } else {
-            return -1;
-        }
+        Symbol symbol = resolve(name);
+        return symbol == null ? -1 : symbol.index();
     }
 
     // This method is used to resolve the symbol name in the current scope.
     // It first checks the subroutine scope, and if not found, it checks the class scope.
-    private Symbol resolve(String name) {
-        // GetOrDefault is used to return the value if present, or null if not found.
-        return subroutineScope.getOrDefault(name, classScope.get(name));
+    // Returns null for names that are not variables (class and subroutine names).
+    public Symbol resolve(String name) {
+        return resolve(ids.intern(name));
     }
-}
 
+    public Symbol resolve(int name) {
+        Symbol symbol = name < subroutineScope.length ? subroutineScope[name] : null;
+        if (symbol == null && name < classScope.length) symbol = classScope[name];
+        return symbol;
+    }
+}
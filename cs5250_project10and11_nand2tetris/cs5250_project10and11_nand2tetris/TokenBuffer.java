@@ -0,0 +1,74 @@
+package cs5250_project10and11_nand2tetris;
+
+import java.util.Arrays;
+
+import cs5250_project10and11_nand2tetris.Tokenizer.TokenType;
+
+// Struct-of-arrays store for the tokens of one whole file.
+// A token is its type, start offset and length in the shared source buffer, a value
+// (keyword ordinal, symbol char or integer) and a line. Nothing is copied out of the
+// source until a consumer asks for a token's text.
+final class TokenBuffer {
+    private static final TokenType[] TYPES = TokenType.values();
+
+    private final char[] source;
+    private byte[] types;
+    private int[] starts;
+    private int[] lengths;
+    private int[] values;
+    private int[] lines;
+    private int size;
+
+    TokenBuffer(char[] source, int expectedTokens) {
+        int capacity = Math.max(16, expectedTokens);
+        this.source = source;
+        this.types = new byte[capacity];
+        this.starts = new int[capacity];
+        this.lengths = new int[capacity];
+        this.values = new int[capacity];
+        this.lines = new int[capacity];
+    }
+
+    void add(TokenType type, int start, int length, int value, int line) {
+        if (size == types.length) {
+            int capacity = size * 2;
+            types = Arrays.copyOf(types, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            values = Arrays.copyOf(values, capacity);
+            lines = Arrays.copyOf(lines, capacity);
+        }
+        types[size] = (byte) type.ordinal();
+        starts[size] = start;
+        lengths[size] = length;
+        values[size] = value;
+        lines[size] = line;
+        size++;
+    }
+
+    int size() {
+        return size;
+    }
+
+    TokenType type(int index) {
+        return TYPES[types[index]];
+    }
+
+    int value(int index) {
+        return values[index];
+    }
+
+    int line(int index) {
+        return lines[index];
+    }
+
+    // Builds the token's text; the only place a whole-file token becomes a String
+    String text(int index) {
+        return new String(source, starts[index], lengths[index]);
+    }
+
+    // Text of a string constant without its surrounding quotes
+    String unquoted(int index) {
+        return new String(source, starts[index] + 1, lengths[index] - 2);
+    }
+}
@@ -6,45 +6,188 @@ import java.util.regex.*;
 
 // Lexical Analysis
 public class Tokenizer {
-    private List<String> tokens;
+    // Token kinds, classified once when the token is lexed
+    public enum TokenType {
+        KEYWORD("keyword"),
+        SYMBOL("symbol"),
+        INT_CONST("integerConstant"),
+        STRING_CONST("stringConstant"),
+        IDENTIFIER("identifier"),
+        NULL("unknown");
+
+        private final String xmlTag;
+
+        TokenType(String xmlTag) {
+            this.xmlTag = xmlTag;
+        }
+
+        public String xmlTag() {
+            return xmlTag;
+        }
+    }
+
+    public enum Keyword {
+        CLASS("class"),
+        CONSTRUCTOR("constructor"),
+        FUNCTION("function"),
+        METHOD("method"),
+        FIELD("field"),
+        STATIC("static"),
+        VAR("var"),
+        INT("int"),
+        CHAR("char"),
+        BOOLEAN("boolean"),
+        VOID("void"),
+        TRUE("true"),
+        FALSE("false"),
+        NULL("null"),
+        THIS("this"),
+        LET("let"),
+        DO("do"),
+        IF("if"),
+        ELSE("else"),
+        WHILE("while"),
+        RETURN("return");
+
+        private static final Keyword[] VALUES = values();
+
+        private final String text;
+
+        Keyword(String text) {
+            this.text = text;
+        }
+
+        public String text() {
+            return text;
+        }
+
+        static Keyword of(int ordinal) {
+            return VALUES[ordinal];
+        }
+
+        // Looks up a keyword by the characters of a word without building a String.
+        // Returns null for identifiers.
+        static Keyword lookup(char[] buf, int start, int length) {
+            for (Keyword keyword : VALUES) {
+                String text = keyword.text;
+                if (text.length() != length || text.charAt(0) != buf[start]) continue;
+                int i = 1;
+                while (i < length && text.charAt(i) == buf[start + i]) i++;
+                if (i == length) return keyword;
+            }
+            return null;
+        }
+    }
+
+    private final Identifiers ids = new Identifiers();
+    private final CompileStats stats;   // null unless the compile is being measured
+    private TokenBuffer tokens;         // whole-file modes only
+    private int sourceLength;
+
     private int currentIndex = -1;
-    private String currentToken;
-    
-    private static final Set<String> keywords = Set.of(
-    	"class",
-    	"constructor", 
-    	"function", 
-    	"method", 
-    	"field", 
-    	"static", 
-    	"var",
-        "int", 
-        "char", 
-        "boolean", 
-        "void", 
-        "true", 
-        "false", 
-        "null", 
-        "this",
-        "let", 
-        "do", 
-        "if", 
-        "else", 
-        "while", 
-        "return"
-    );
-    
-    private static final Set<Character> symbols = Set.of(
-            '{', '}', '(', ')', '[', ']', '.', ',', ';',
-            '+', '-', '*', '/', '&', '|', '<', '>', '=', '~'
-        );
-    
+    private String currentToken;        // STREAMING mode only; whole-file text stays in the buffer
+    private TokenType currentType = TokenType.NULL;
+    private int currentValue;
+    private int currentLine;
+
+    // STREAMING mode: the lexer over the open reader and a one-token lookahead window
+    private Lexer stream;
+    private Reader streamReader;
+    private TokenType nextType = TokenType.NULL;
+    private int nextValue;
+    private int nextLine;
+    private String nextToken;
+    private int streamed;               // tokens lexed so far
+
+    static final int MAX_INT_CONST = 32767;     // largest integer constant Jack allows
+
+    private static final boolean[] symbols = new boolean[128];
+    static {
+        for (char c : "{}()[].,;+-*/&|<>=~".toCharArray()) {
+            symbols[c] = true;
+        }
+    }
+
     private static final Pattern tokenPattern = Pattern.compile(
             "\"[^\"]*\"|\\d+|[a-zA-Z_][a-zA-Z_0-9]*|\\p{Punct}"
         );
-    
+
+    // Which lexer splits the source into tokens.
+    // SCANNER is the single-pass hand-written Lexer, REGEX the original comment-stripping regex pipeline.
+    // STREAMING runs the same Lexer over a Reader and only keeps the current and next token,
+    // so memory no longer grows with the size of the file.
+    public enum Lexing {
+        SCANNER,
+        REGEX,
+        STREAMING
+    }
+
     public Tokenizer(File inputFile) throws IOException {
-    	tokens = new ArrayList<>();
+        this(inputFile, Lexing.SCANNER);
+    }
+
+    public Tokenizer(File inputFile, Lexing lexing) throws IOException {
+        this(inputFile, lexing, null);
+    }
+
+    // Records the read, comment stripping and lexing phases in stats when it is not null.
+    // A STREAMING tokenizer lexes while it is consumed, so only its token count is recorded.
+    public Tokenizer(File inputFile, Lexing lexing, CompileStats stats) throws IOException {
+        this.stats = stats;
+        if (lexing == Lexing.STREAMING) {
+            streamReader = new BufferedReader(new FileReader(inputFile), Lexer.WINDOW_SIZE);
+            stream = new Lexer(streamReader);
+            fetchNext();
+            return;
+        }
+
+        if (lexing == Lexing.REGEX) {
+            tokenizeWithRegex(inputFile);
+        } else {
+            if (stats != null) stats.begin(CompileStats.Phase.READ);
+            char[] source = readSource(inputFile);
+            if (stats != null) {
+                stats.end();
+                stats.begin(CompileStats.Phase.LEX);
+            }
+            tokens = new TokenBuffer(source, sourceLength / 4);
+            Lexer lexer = new Lexer(source, sourceLength);
+            TokenType type;
+            while ((type = lexer.next()) != TokenType.NULL) {
+                int value = type == TokenType.IDENTIFIER ? ids.intern(source, lexer.start(), lexer.length()) : lexer.value();
+                tokens.add(type, lexer.start(), lexer.length(), value, lexer.line());
+            }
+            if (stats != null) stats.end();
+        }
+        if (stats != null) stats.addTokens(tokens.size());
+    }
+
+    // The measurements this tokenizer records into; null when the compile is not measured
+    public CompileStats stats() {
+        return stats;
+    }
+
+    // Reads the whole file into one char buffer, sized from the file length up front. The spare
+    // char lets the final read report end of file without the buffer counting as full; a file
+    // decodes to at most one char per byte, so it only grows if the file grows while being read.
+    private char[] readSource(File inputFile) throws IOException {
+        char[] buf = new char[(int) Math.max(16, inputFile.length() + 1)];
+        int length = 0;
+        try (Reader reader = new FileReader(inputFile)) {
+            int n;
+            while ((n = reader.read(buf, length, buf.length - length)) > 0) {
+                length += n;
+                if (length == buf.length) {
+                    buf = Arrays.copyOf(buf, buf.length * 2);
+                }
+            }
+        }
+        sourceLength = length;
+        return buf;
+    }
+
+    private void tokenizeWithRegex(File inputFile) throws IOException {
+        if (stats != null) stats.begin(CompileStats.Phase.READ);
         StringBuilder rawCode = new StringBuilder();
 
         try (BufferedReader reader = new BufferedReader(new FileReader(inputFile))) {
@@ -54,15 +197,30 @@ public class Tokenizer {
             }
         }
 
+        if (stats != null) {
+            stats.end();
+            stats.begin(CompileStats.Phase.STRIP_COMMENTS);
+        }
+
         // Remove all comments from the code
         String cleaned = removeComments(rawCode.toString());
+        if (stats != null) {
+            stats.end();
+            stats.begin(CompileStats.Phase.LEX);
+        }
 
-        // Match and store all valid tokens
+        // Match, classify and store all valid tokens
+        char[] chars = cleaned.toCharArray();
+        tokens = new TokenBuffer(chars, chars.length / 4);
         Matcher matcher = tokenPattern.matcher(cleaned);
         while (matcher.find()) {
-            String token = matcher.group();
-            tokens.add(token);
+            int start = matcher.start();
+            int length = matcher.end() - start;
+            TokenType type = classify(chars, start, length);
+            int value = type == TokenType.IDENTIFIER ? ids.intern(chars, start, length) : valueOf(type, chars, start, length);
+            tokens.add(type, start, length, value, 0);
         }
+        if (stats != null) stats.end();
     }
 
     // Remove all line and block comments using regex
@@ -72,113 +230,223 @@ public class Tokenizer {
                     .replaceAll("/\\*([\\s\\S]*?)\\*/", ""); // multiline block
     }
 
+    // Classifies one token's characters; shared by both lexers so they agree on kinds.
+    static TokenType classify(char[] buf, int start, int length) {
+        char first = buf[start];
+        if (length == 1 && first < 128 && symbols[first]) {
+            return TokenType.SYMBOL;
+        } else if (first >= '0' && first <= '9') {
+            return TokenType.INT_CONST;
+        } else if (first == '"' && length > 1) {
+            return TokenType.STRING_CONST;
+        } else if (Keyword.lookup(buf, start, length) != null) {
+            return TokenType.KEYWORD;
+        } else {
+            return TokenType.IDENTIFIER;
+        }
+    }
+
+    // Pre-computes the value that intVal(), keyWord() and symbol() return for a token.
+    // Identifiers get their ID from the intern table instead.
+    static int valueOf(TokenType type, char[] buf, int start, int length) {
+        switch (type) {
+            case KEYWORD:
+                return Keyword.lookup(buf, start, length).ordinal();
+            case SYMBOL:
+                return buf[start];
+            case INT_CONST:
+                int value = 0;
+                for (int i = start; i < start + length; i++) {
+                    if (value <= MAX_INT_CONST) value = value * 10 + (buf[i] - '0'); // stays out of range
+                }
+                return value;
+            default:
+                return 0;
+        }
+    }
+
+    // Returns the first difference between the SCANNER token stream of a file and the one
+    // produced by another lexer, or null when both produce the same tokens.
+    public static String compareLexers(File inputFile, Lexing other) throws IOException {
+        Tokenizer scanned = new Tokenizer(inputFile, Lexing.SCANNER);
+        Tokenizer compared = new Tokenizer(inputFile, other);
+
+        for (int i = 0; scanned.hasMoreTokens() || compared.hasMoreTokens(); i++) {
+            scanned.advance();
+            compared.advance();
+            String a = scanned.tokenType() == TokenType.NULL ? "<end>" : scanned.getCurrentToken();
+            String b = compared.tokenType() == TokenType.NULL ? "<end>" : compared.getCurrentToken();
+            if (!a.equals(b) || scanned.tokenType() != compared.tokenType()) {
+                compared.close();
+                return "token " + i + " (line " + scanned.lineNumber() + "): scanner '" + a + "' vs "
+                        + other.name().toLowerCase() + " '" + b + "'";
+            }
+        }
+        return null;
+    }
+
+    // Lexes the token after the current one into the lookahead slot (STREAMING mode)
+    private void fetchNext() {
+        nextType = stream.next();
+        nextValue = stream.value();
+        nextLine = stream.line();
+        nextToken = null;
+        streamed++;
+        if (nextType == TokenType.IDENTIFIER) {
+            nextValue = stream.intern(ids);
+            nextToken = ids.name(nextValue);
+        } else if (nextType == TokenType.STRING_CONST) {
+            nextToken = stream.text();
+        }
+        if (nextType == TokenType.NULL) {
+            close();
+        }
+    }
+
+    // Releases the reader of a STREAMING tokenizer; a no-op for the whole-file modes.
+    public void close() {
+        if (streamReader != null) {
+            if (stats != null) stats.addTokens(nextType == TokenType.NULL ? streamed - 1 : streamed);
+            try {
+                streamReader.close();
+            } catch (IOException e) {
+                // Nothing left to read from it anyway
+            }
+            streamReader = null;
+        }
+    }
+
+    // Goes back to before the first token so another consumer can walk the same tokens.
+    // Only the whole-file modes keep their tokens; a STREAMING tokenizer cannot rewind.
+    public void rewind() {
+        if (tokens == null) {
+            throw new IllegalStateException("A streaming tokenizer cannot rewind");
+        }
+        currentIndex = -1;
+        currentType = TokenType.NULL;
+    }
+
     public boolean hasMoreTokens() {
+        if (stream != null) {
+            return nextType != TokenType.NULL;
+        }
         return currentIndex < tokens.size() - 1;
     }
 
     public void advance() {
-    	if (hasMoreTokens()) {
+        if (stream != null) {
+            currentToken = nextToken;
+            currentType = nextType;
+            currentValue = nextValue;
+            currentLine = nextLine;
+            if (nextType != TokenType.NULL) {
+                fetchNext();
+            }
+        } else if (hasMoreTokens()) {
             currentIndex++;
-            currentToken = tokens.get(currentIndex);
+            currentType = tokens.type(currentIndex);
+            currentValue = tokens.value(currentIndex);
+            currentLine = tokens.line(currentIndex);
         } else {
             currentToken = null;
+            currentType = TokenType.NULL;
         }
     }
 
-    public String tokenType() {
-        if (currentToken == null) 
-        	return "NULL";
-
-        if (keywords.contains(currentToken)) 
-        	return "KEYWORD";
-        else if (currentToken.length() == 1 && symbols.contains(currentToken.charAt(0))) 
-        	return "SYMBOL";
-        else if (currentToken.matches("^\\d+$")) 
-        	return "INT_CONST";
-        else if (currentToken.startsWith("\"") && currentToken.endsWith("\"")) 
-        	return "STRING_CONST";
-        else 
-        	return "IDENTIFIER";
+    public TokenType tokenType() {
+        return currentType;
     }
-    
-    // Returns the current token as a string.
-    public String keyWord() { 
-    	return currentToken; 
+
+    // Returns the current token as a keyword.
+    public Keyword keyWord() {
+    	return Keyword.of(currentValue);
     }
-    
+
     // Returns the current token as a char, if it is a symbol.
-    public char symbol() { 
-    	return currentToken.charAt(0); 
+    public char symbol() {
+    	return (char) currentValue;
     }
-    
+
     // Return user-defined identifier as a string.
     // This includes class names, variable names, and subroutine names.
-    public String identifier() { 
-    	return currentToken; 
+    public String identifier() {
+    	return ids.name(currentValue);
     }
-    
+
+    // ID of the current identifier in this tokenizer's intern table
+    public int identifierId() {
+        return currentValue;
+    }
+
+    // The intern table identifier IDs refer to
+    public Identifiers identifiers() {
+        return ids;
+    }
+
     //  Returns the current token as an int, if it is an integer constant.
-    public int intVal() { 
-    	return Integer.parseInt(currentToken); 
+    //  Constants above 32767 are lexed as some value past it and rejected here.
+    public int intVal() {
+        if (currentValue > MAX_INT_CONST) {
+            String text = tokens != null ? " " + tokens.text(currentIndex) : "";
+            throw new IllegalStateException("Integer constant" + text + " out of range"
+                    + (currentLine > 0 ? " at line " + currentLine : "") + ": Jack constants go up to " + MAX_INT_CONST);
+        }
+    	return currentValue;
     }
-    
+
     // Returns the current token as a string, if it is a string constant.
     public String stringVal() {
+        if (tokens != null) {
+            return tokens.unquoted(currentIndex);
+        }
         return currentToken.substring(1, currentToken.length() - 1);
     }
 
     public String getCurrentToken() {
+        if (tokens != null) {
+            return currentType != TokenType.NULL ? tokens.text(currentIndex) : null;
+        }
+        if (currentToken == null) {
+            // STREAMING mode only keeps the text of identifiers and strings
+            switch (currentType) {
+                case KEYWORD: return keyWord().text();
+                case SYMBOL: return String.valueOf(symbol());
+                case INT_CONST: return String.valueOf(intVal());
+                default: return null;
+            }
+        }
         return currentToken;
     }
-    
-    // Returns true if the current token is a keyword.
-    public boolean keywordIs(String keyword) {
-        return currentToken.equals(keyword);
+
+    // Returns the source line of the current token, or 0 when the lexer does not track positions.
+    public int lineNumber() {
+        return currentType != TokenType.NULL ? currentLine : 0;
+    }
+
+    // Returns true if the current token is the given keyword.
+    public boolean keywordIs(Keyword keyword) {
+        return currentType == TokenType.KEYWORD && currentValue == keyword.ordinal();
     }
 
     // Returns true if the current token is a symbol.
     public boolean symbolIs(String symbol) {
-        return currentToken.equals(symbol);
+        return symbol.length() == 1 && symbolIs(symbol.charAt(0));
     }
 
     // Returns true if the current token is a symbol.
     // This is used for single character symbols.
     public boolean symbolIs(char c) {
-        return currentToken.length() == 1 && currentToken.charAt(0) == c;
+        return currentType == TokenType.SYMBOL && currentValue == c;
     }
-    
+
     // Exporting XML file for Tokenizers
     public static void exportTokensToXml(File inputFile, File outputFile) {
-        try {
-            Tokenizer tokenizer = new Tokenizer(inputFile);
-            PrintWriter writer = new PrintWriter(outputFile);
-            writer.println("<tokens>");
-
-            while (tokenizer.hasMoreTokens()) {
-                tokenizer.advance();
-                String type = tokenizer.tokenType();
-                String value;
-
-                if (type.equals("KEYWORD")) {
-                    value = tokenizer.keyWord();
-                    writer.printf("<keyword> %s </keyword>%n", escapeXml(value));
-                } else if (type.equals("SYMBOL")) {
-                    value = String.valueOf(tokenizer.symbol());
-                    writer.printf("<symbol> %s </symbol>%n", escapeXml(value));
-                } else if (type.equals("INT_CONST")) {
-                    value = String.valueOf(tokenizer.intVal());
-                    writer.printf("<integerConstant> %s </integerConstant>%n", value);
-                } else if (type.equals("STRING_CONST")) {
-                    value = tokenizer.stringVal();
-                    writer.printf("<stringConstant> %s </stringConstant>%n", value);
-                } else if (type.equals("IDENTIFIER")) {
-                    value = tokenizer.identifier();
-                    writer.printf("<identifier> %s </identifier>%n", value);
-                }
-            }
+        exportTokensToXml(inputFile, outputFile, Lexing.SCANNER);
+    }
 
-            writer.println("</tokens>");
-            writer.close();
+    public static void exportTokensToXml(File inputFile, File outputFile, Lexing lexing) {
+        try {
+            new Tokenizer(inputFile, lexing).writeXml(outputFile);
             System.out.println("Token output written to: " + outputFile.getAbsolutePath());
 
         } catch (IOException e) {
@@ -186,6 +454,35 @@ public class Tokenizer {
         }
     }
 
+    // Writes the remaining tokens as a <tokens> XML list (the T.xml of project 10)
+    public void writeXml(File outputFile) throws IOException {
+        PrintWriter writer = new PrintWriter(outputFile);
+        writer.println("<tokens>");
+
+        while (hasMoreTokens()) {
+            advance();
+            TokenType type = tokenType();
+            String value;
+
+            switch (type) {
+                case KEYWORD -> value = escapeXml(keyWord().text());
+                case SYMBOL -> value = escapeXml(String.valueOf(symbol()));
+                case INT_CONST -> value = String.valueOf(intVal());
+                case STRING_CONST -> value = stringVal();
+                case IDENTIFIER -> value = identifier();
+                default -> {
+                    continue;
+                }
+            }
+            writer.append('<').append(type.xmlTag()).append("> ").append(value)
+                  .append(" </").append(type.xmlTag()).append('>').println();
+        }
+
+        writer.println("</tokens>");
+        writer.close();
+        close();
+    }
+
     private static String escapeXml(String input) {
         return input.replace("&", "&amp;")
                     .replace("<", "&lt;")
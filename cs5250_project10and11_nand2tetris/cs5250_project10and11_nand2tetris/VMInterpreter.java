@@ -0,0 +1,528 @@
+package cs5250_project10and11_nand2tetris;
+
+import java.io.*;
+import java.util.*;
+
+// Runs Hack VM programs in-process, so generated code can be judged by the work it does at run time.
+// Commands are decoded once into int arrays (opcode and up to two operands) with segments, labels
+// and call targets already resolved, and the run loop is a single switch over opcodes on a 32K-word
+// RAM laid out like the Hack platform: stack from 256, heap from 2048, screen at 16384, keyboard
+// at 24576. The OS classes run natively in JackOS unless the program defines them itself.
+// Every executed command is counted at its position; the profile sums those counts per function,
+// together with calls into it and an estimate of Hack CPU cycles based on what a straightforward
+// VM translator emits for each command. Time spent inside native OS functions is not in the cycles.
+public class VMInterpreter {
+    static final int SP = 0, LCL = 1, ARG = 2, THIS = 3, THAT = 4, TEMP = 5;
+    static final int STATIC_BASE = 16, STATIC_END = 256, STACK_BASE = 256, HEAP_BASE = 2048;
+    static final int SCREEN = 16384, KEYBOARD = 24576, RAM_SIZE = 32768;
+
+    // Opcodes. Static, temp and pointer operands are resolved to absolute addresses (DIRECT).
+    private static final int PUSH_CONSTANT = 0, PUSH_LOCAL = 1, PUSH_ARGUMENT = 2, PUSH_THIS = 3, PUSH_THAT = 4,
+            PUSH_DIRECT = 5, POP_LOCAL = 6, POP_ARGUMENT = 7, POP_THIS = 8, POP_THAT = 9, POP_DIRECT = 10,
+            ADD = 11, SUB = 12, NEG = 13, EQ = 14, GT = 15, LT = 16, AND = 17, OR = 18, NOT = 19,
+            LABEL = 20, GOTO = 21, IF_GOTO = 22, CALL = 23, CALL_NATIVE = 24, FUNCTION = 25, RETURN = 26, HALT = 27;
+
+    // Hack instructions per command in a translator without shared helpers; FUNCTION adds 7 per local
+    private static final int[] CYCLES = {
+            7, 10, 10, 10, 10, 7, 12, 12, 12, 12, 5,
+            5, 5, 3, 11, 11, 11, 5, 5, 3,
+            0, 2, 5, 49, 49, 0, 43, 0
+    };
+    private static final String[] ARITHMETIC = {"add", "sub", "neg", "eq", "gt", "lt", "and", "or", "not"};
+
+    public enum Status {
+        HALTED,         // Sys.halt, or the entry function returned
+        FAILED,         // runtime error, e.g. division by zero or a bad address
+        STEP_LIMIT      // stopped after the maximum number of commands
+    }
+
+    // Outcome of one run
+    public static class Run {
+        public final Status status;
+        public final long commands;
+        public final String message;    // error or stop reason; null when halted
+
+        Run(Status status, long commands, String message) {
+            this.status = status;
+            this.commands = commands;
+            this.message = message;
+        }
+    }
+
+    // Runtime error raised by the program or a native OS function
+    static class Trap extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        Trap(String message) {
+            super(message);
+        }
+    }
+
+    // Sys.halt unwinds the run loop with this
+    static class Halt extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        Halt() {
+            super(null, null, false, false);
+        }
+    }
+
+    // Decoded program
+    private int[] ops = new int[1024];
+    private int[] arg1 = new int[1024];
+    private int[] arg2 = new int[1024];
+    private int size;
+    private final List<String> functionNames = new ArrayList<>();
+    private final List<Integer> functionStarts = new ArrayList<>();
+    private final Map<String, Integer> functions = new HashMap<>();
+    private final List<String> callTargets = new ArrayList<>();  // CALL sites in order, resolved by link()
+    private final List<Integer> callSites = new ArrayList<>();
+    private String entryPoint;
+
+    // Run state
+    private final int[] ram = new int[RAM_SIZE];
+    private long[] hits;
+    private long[] nativeCalls;
+
+    private VMInterpreter() {
+        emit(CALL, 0, 0); // bootstrap: call the entry point, then stop
+        emit(HALT, 0, 0);
+    }
+
+    // Loads .vm and .vmb files as one program; each file is one class with its own statics.
+    // Runs Sys.init when the program defines it, Main.main otherwise.
+    public static VMInterpreter load(List<File> files) throws IOException {
+        VMInterpreter vm = new VMInterpreter();
+        Loader loader = vm.new Loader();
+        for (File file : files) {
+            loader.startFile();
+            VMTextReader.replay(file, loader);
+            try {
+                loader.endFile();
+            } catch (IllegalArgumentException e) {
+                throw new IOException(file.getPath() + ": " + e.getMessage());
+            }
+        }
+        vm.link();
+        return vm;
+    }
+
+    // The .vm or .vmb files of a program: the file itself, or every one in a directory, sorted by name
+    public static List<File> programFiles(File input) {
+        List<File> files = new ArrayList<>();
+        File[] listed = input.isDirectory() ? input.listFiles() : new File[] {input};
+        if (listed == null) return files;
+        for (File file : listed) {
+            if (file.isFile() && (file.getName().endsWith(".vm") || file.getName().endsWith(".vmb"))) files.add(file);
+        }
+        files.sort(Comparator.comparing(File::getName));
+        return files;
+    }
+
+    public String entryPoint() {
+        return entryPoint;
+    }
+
+    private void emit(int op, int a, int b) {
+        if (size == ops.length) {
+            ops = Arrays.copyOf(ops, size * 2);
+            arg1 = Arrays.copyOf(arg1, size * 2);
+            arg2 = Arrays.copyOf(arg2, size * 2);
+        }
+        ops[size] = op;
+        arg1[size] = a;
+        arg2[size] = b;
+        size++;
+    }
+
+    // Resolves call targets: functions of the program first, native OS functions otherwise
+    private void link() throws IOException {
+        for (int i = 0; i < callSites.size(); i++) {
+            int site = callSites.get(i);
+            String name = callTargets.get(i);
+            Integer function = functions.get(name);
+            if (function != null) {
+                arg1[site] = functionStarts.get(function);
+                continue;
+            }
+            JackOS.Function os = JackOS.Function.named(name);
+            if (os == null) throw new IOException("Call to undefined function " + name);
+            if (os.arity != arg2[site]) {
+                throw new IOException("Call to " + name + " with " + arg2[site] + " arguments, expected " + os.arity);
+            }
+            ops[site] = CALL_NATIVE;
+            arg1[site] = os.ordinal();
+        }
+        entryPoint = functions.containsKey("Sys.init") ? "Sys.init" : "Main.main";
+        Integer entry = functions.get(entryPoint);
+        if (entry == null) throw new IOException("No Sys.init or Main.main to run");
+        arg1[0] = functionStarts.get(entry);
+        hits = new long[size];
+        nativeCalls = new long[JackOS.Function.values().length];
+    }
+
+    // Runs the program from a fresh machine, with Keyboard reading from in and Output writing to out.
+    // Stops after maxSteps commands (0 for no limit).
+    public Run run(BufferedReader in, PrintStream out, long maxSteps) {
+        Arrays.fill(ram, 0);
+        Arrays.fill(hits, 0);
+        Arrays.fill(nativeCalls, 0);
+        JackOS os = new JackOS(ram, in, out);
+        long limit = maxSteps > 0 ? maxSteps : Long.MAX_VALUE;
+
+        final int[] ram = this.ram, ops = this.ops, a = this.arg1, b = this.arg2;
+        final long[] hits = this.hits;
+        int sp = STACK_BASE, lcl = 0, arg = 0, pc = 0;
+        long steps = 0;
+        Status status = Status.HALTED;
+        String message = null;
+        try {
+            while (true) {
+                int p = pc++;
+                hits[p]++;
+                steps++;
+                switch (ops[p]) {
+                    case PUSH_CONSTANT -> ram[sp++] = a[p];
+                    case PUSH_LOCAL -> ram[sp++] = ram[lcl + a[p]];
+                    case PUSH_ARGUMENT -> ram[sp++] = ram[arg + a[p]];
+                    case PUSH_THIS -> ram[sp++] = ram[ram[THIS] + a[p]];
+                    case PUSH_THAT -> ram[sp++] = ram[ram[THAT] + a[p]];
+                    case PUSH_DIRECT -> ram[sp++] = ram[a[p]];
+                    case POP_LOCAL -> ram[lcl + a[p]] = ram[--sp];
+                    case POP_ARGUMENT -> ram[arg + a[p]] = ram[--sp];
+                    case POP_THIS -> ram[ram[THIS] + a[p]] = ram[--sp];
+                    case POP_THAT -> ram[ram[THAT] + a[p]] = ram[--sp];
+                    case POP_DIRECT -> ram[a[p]] = ram[--sp];
+                    case ADD -> { sp--; ram[sp - 1] = (short) (ram[sp - 1] + ram[sp]); }
+                    case SUB -> { sp--; ram[sp - 1] = (short) (ram[sp - 1] - ram[sp]); }
+                    case NEG -> ram[sp - 1] = (short) -ram[sp - 1];
+                    case EQ -> { sp--; ram[sp - 1] = ram[sp - 1] == ram[sp] ? -1 : 0; }
+                    case GT -> { sp--; ram[sp - 1] = ram[sp - 1] > ram[sp] ? -1 : 0; }
+                    case LT -> { sp--; ram[sp - 1] = ram[sp - 1] < ram[sp] ? -1 : 0; }
+                    case AND -> { sp--; ram[sp - 1] &= ram[sp]; }
+                    case OR -> { sp--; ram[sp - 1] |= ram[sp]; }
+                    case NOT -> ram[sp - 1] = ~ram[sp - 1];
+                    case LABEL -> { }
+                    case GOTO -> {
+                        pc = a[p];
+                        if (steps >= limit) throw new StepLimit();
+                    }
+                    case IF_GOTO -> {
+                        if (ram[--sp] != 0) pc = a[p];
+                        if (steps >= limit) throw new StepLimit();
+                    }
+                    case CALL -> {
+                        if (sp > HEAP_BASE - 5) throw new Trap("Stack overflow");
+                        if (steps >= limit) throw new StepLimit();
+                        ram[sp] = pc;
+                        ram[sp + 1] = lcl;
+                        ram[sp + 2] = arg;
+                        ram[sp + 3] = ram[THIS];
+                        ram[sp + 4] = ram[THAT];
+                        arg = sp - b[p];
+                        sp += 5;
+                        lcl = sp;
+                        pc = a[p];
+                    }
+                    case CALL_NATIVE -> {
+                        ram[SP] = sp;
+                        ram[LCL] = lcl;
+                        ram[ARG] = arg;
+                        nativeCalls[a[p]]++;
+                        int base = sp - b[p];
+                        int value = os.call(a[p], base);
+                        sp = base;
+                        ram[sp++] = value;
+                    }
+                    case FUNCTION -> {
+                        if (sp + a[p] > HEAP_BASE) throw new Trap("Stack overflow");
+                        for (int i = a[p]; i > 0; i--) ram[sp++] = 0;
+                    }
+                    case RETURN -> {
+                        int frame = lcl;
+                        pc = ram[frame - 5];
+                        ram[arg] = ram[sp - 1];
+                        sp = arg + 1;
+                        ram[THAT] = ram[frame - 1];
+                        ram[THIS] = ram[frame - 2];
+                        arg = ram[frame - 3];
+                        lcl = ram[frame - 4];
+                    }
+                    case HALT -> throw new Halt();
+                    default -> throw new Trap("Bad opcode " + ops[p]);
+                }
+            }
+        } catch (Halt e) {
+            // Normal end
+        } catch (StepLimit e) {
+            status = Status.STEP_LIMIT;
+            message = "Stopped after " + steps + " commands in " + functionAt(pc - 1);
+        } catch (Trap e) {
+            status = Status.FAILED;
+            message = e.getMessage() + " in " + functionAt(pc - 1);
+        } catch (ArrayIndexOutOfBoundsException e) {
+            status = Status.FAILED;
+            message = "Memory access out of range in " + functionAt(pc - 1);
+        }
+        ram[SP] = sp;
+        return new Run(status, steps, message);
+    }
+
+    private static class StepLimit extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        StepLimit() {
+            super(null, null, false, false);
+        }
+    }
+
+    // Name of the function whose code contains pc
+    private String functionAt(int pc) {
+        int found = -1;
+        for (int i = 0; i < functionStarts.size(); i++) {
+            if (functionStarts.get(i) <= pc) found = i;
+        }
+        return found >= 0 ? functionNames.get(found) : "bootstrap";
+    }
+
+    // Reads RAM after a run, e.g. the results ConvertToBin leaves in RAM[8001..8016]
+    public int peek(int address) {
+        return ram[address];
+    }
+
+    // Per-function counts of the last run
+    public static class FunctionProfile {
+        public final String name;
+        public final boolean nativeOs;
+        public final long calls;
+        public final long commands;     // VM commands executed in the function itself
+        public final long cycles;       // estimated Hack instructions for those commands
+
+        FunctionProfile(String name, boolean nativeOs, long calls, long commands, long cycles) {
+            this.name = name;
+            this.nativeOs = nativeOs;
+            this.calls = calls;
+            this.commands = commands;
+            this.cycles = cycles;
+        }
+    }
+
+    // Functions and native OS functions that ran in the last run, most cycles first
+    public List<FunctionProfile> profile() {
+        List<FunctionProfile> profile = new ArrayList<>();
+        for (int f = 0; f < functionNames.size(); f++) {
+            int start = functionStarts.get(f);
+            int end = f + 1 < functionStarts.size() ? functionStarts.get(f + 1) : size;
+            long commands = 0, cycles = 0;
+            for (int p = start; p < end; p++) {
+                commands += hits[p];
+                cycles += hits[p] * cycles(p);
+            }
+            if (hits[start] > 0) profile.add(new FunctionProfile(functionNames.get(f), false, hits[start], commands, cycles));
+        }
+        for (JackOS.Function os : JackOS.Function.values()) {
+            if (nativeCalls[os.ordinal()] > 0) profile.add(new FunctionProfile(os.qualifiedName, true, nativeCalls[os.ordinal()], 0, 0));
+        }
+        profile.sort(Comparator.comparingLong((FunctionProfile f) -> f.cycles).reversed()
+                .thenComparing(Comparator.comparingLong((FunctionProfile f) -> f.calls).reversed()));
+        return profile;
+    }
+
+    // Estimated Hack instructions for the whole last run
+    public long cycles() {
+        long cycles = 0;
+        for (int p = 0; p < size; p++) cycles += hits[p] * cycles(p);
+        return cycles;
+    }
+
+    private int cycles(int p) {
+        return ops[p] == FUNCTION ? 7 * arg1[p] : CYCLES[ops[p]];
+    }
+
+    // Summary line and, with details, one row per function
+    public String report(Run run, boolean details) {
+        StringBuilder out = new StringBuilder();
+        long calls = 0;
+        List<FunctionProfile> profile = profile();
+        for (FunctionProfile function : profile) calls += function.calls;
+        out.append(run.status == Status.HALTED ? "Ran " : run.status == Status.FAILED ? "Failed " : "Stopped ")
+                .append(entryPoint).append(": ").append(run.commands).append(" VM commands, ")
+                .append(calls).append(" calls, ").append(cycles()).append(" estimated Hack cycles");
+        if (run.message != null) out.append(" (").append(run.message).append(')');
+        out.append(System.lineSeparator());
+        if (!details) return out.toString();
+
+        int width = "Function".length();
+        for (FunctionProfile function : profile) width = Math.max(width, function.name.length() + (function.nativeOs ? 9 : 0));
+        long total = Math.max(1, cycles());
+        out.append(String.format("%-" + width + "s %12s %14s %14s %7s%n", "Function", "calls", "commands", "cycles", "cycles%"));
+        for (FunctionProfile function : profile) {
+            String name = function.nativeOs ? function.name + " (native)" : function.name;
+            out.append(String.format("%-" + width + "s %12d %14s %14s %6.1f%%%n", name, function.calls,
+                    function.nativeOs ? "-" : String.valueOf(function.commands),
+                    function.nativeOs ? "-" : String.valueOf(function.cycles), 100.0 * function.cycles / total));
+        }
+        return out.toString();
+    }
+
+    // Decodes commands as they are replayed from .vm or .vmb files, so both go through the same
+    // checks. Labels are scoped to their function, as in the VM spec.
+    private class Loader implements VMWriter {
+        private int staticBase = STATIC_BASE;
+        private int staticCount;
+        private final Map<String, Integer> labels = new HashMap<>();
+        private final List<Integer> jumps = new ArrayList<>();
+        private final List<String> jumpLabels = new ArrayList<>();
+        private boolean inFunction;
+
+        void startFile() {
+            staticCount = 0;
+            inFunction = false;
+        }
+
+        void endFile() {
+            resolveLabels();
+            staticBase += staticCount;
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message);
+        }
+
+        private void requireFunction() {
+            if (!inFunction) throw error("Command outside of a function");
+        }
+
+        // Absolute address of a static, temp or pointer operand, or -1 for the other segments
+        private int direct(String segment, int index) {
+            switch (segment) {
+                case "static":
+                    if (index < 0 || staticBase + index >= STATIC_END) throw error("Too many static variables");
+                    staticCount = Math.max(staticCount, index + 1);
+                    return staticBase + index;
+                case "temp":
+                    if (index < 0 || index > 7) throw error("temp " + index + " out of range");
+                    return TEMP + index;
+                case "pointer":
+                    if (index < 0 || index > 1) throw error("pointer " + index + " out of range");
+                    return THIS + index;
+                default:
+                    return -1;
+            }
+        }
+
+        @Override
+        public void writePush(String segment, int index) {
+            requireFunction();
+            int address = direct(segment, index);
+            if (address >= 0) {
+                emit(PUSH_DIRECT, address, 0);
+                return;
+            }
+            if (index < 0 || index > 32767) throw error(segment + " " + index + " out of range");
+            switch (segment) {
+                case "constant" -> emit(PUSH_CONSTANT, index, 0);
+                case "local" -> emit(PUSH_LOCAL, index, 0);
+                case "argument" -> emit(PUSH_ARGUMENT, index, 0);
+                case "this" -> emit(PUSH_THIS, index, 0);
+                case "that" -> emit(PUSH_THAT, index, 0);
+                default -> throw error("Unknown segment '" + segment + "'");
+            }
+        }
+
+        @Override
+        public void writePop(String segment, int index) {
+            requireFunction();
+            int address = direct(segment, index);
+            if (address >= 0) {
+                emit(POP_DIRECT, address, 0);
+                return;
+            }
+            if (index < 0 || index > 32767) throw error(segment + " " + index + " out of range");
+            switch (segment) {
+                case "local" -> emit(POP_LOCAL, index, 0);
+                case "argument" -> emit(POP_ARGUMENT, index, 0);
+                case "this" -> emit(POP_THIS, index, 0);
+                case "that" -> emit(POP_THAT, index, 0);
+                default -> throw error("Cannot pop to '" + segment + "'");
+            }
+        }
+
+        @Override
+        public void writeArithmetic(String command) {
+            requireFunction();
+            for (int i = 0; i < ARITHMETIC.length; i++) {
+                if (ARITHMETIC[i].equals(command)) {
+                    emit(ADD + i, 0, 0);
+                    return;
+                }
+            }
+            throw error("Unknown command '" + command + "'");
+        }
+
+        @Override
+        public void writeLabel(String label) {
+            requireFunction();
+            if (labels.put(label, size) != null) throw error("Duplicate label " + label);
+            emit(LABEL, 0, 0);
+        }
+
+        @Override
+        public void writeGoto(String label) {
+            jump(GOTO, label);
+        }
+
+        @Override
+        public void writeIf(String label) {
+            jump(IF_GOTO, label);
+        }
+
+        private void jump(int op, String label) {
+            requireFunction();
+            jumps.add(size);
+            jumpLabels.add(label);
+            emit(op, 0, 0);
+        }
+
+        @Override
+        public void writeCall(String name, int nArgs) {
+            requireFunction();
+            callSites.add(size);
+            callTargets.add(name);
+            emit(CALL, 0, nArgs);
+        }
+
+        @Override
+        public void writeFunction(String name, int nLocals) {
+            resolveLabels();
+            if (functions.containsKey(name)) throw error("Duplicate function " + name);
+            functions.put(name, functionNames.size());
+            functionNames.add(name);
+            functionStarts.add(size);
+            inFunction = true;
+            emit(FUNCTION, nLocals, 0);
+        }
+
+        @Override
+        public void writeReturn() {
+            requireFunction();
+            emit(RETURN, 0, 0);
+        }
+
+        @Override
+        public void close() {
+        }
+
+        // Points the jumps of the function just finished at their labels
+        private void resolveLabels() {
+            for (int i = 0; i < jumps.size(); i++) {
+                Integer target = labels.get(jumpLabels.get(i));
+                if (target == null) throw error("Jump to undefined label " + jumpLabels.get(i));
+                arg1[jumps.get(i)] = target;
+            }
+            labels.clear();
+            jumps.clear();
+            jumpLabels.clear();
+        }
+    }
+}
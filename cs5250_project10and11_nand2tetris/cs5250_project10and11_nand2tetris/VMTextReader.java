@@ -0,0 +1,74 @@
+package cs5250_project10and11_nand2tetris;
+
+import java.io.*;
+
+// Parses a text .vm file and replays its commands into any VMWriter, the text counterpart of
+// BinaryVMReader. Comments and blank lines are skipped. Errors from parsing or from the writer
+// (an IllegalArgumentException) are reported as an IOException naming the file and line.
+public class VMTextReader {
+    private final File file;
+
+    public VMTextReader(File file) {
+        this.file = file;
+    }
+
+    // Replays a .vm or .vmb file, whichever it turns out to be
+    public static void replay(File file, VMWriter writer) throws IOException {
+        if (BinaryVMReader.isBinary(file)) {
+            try {
+                new BinaryVMReader(file).replay(writer);
+            } catch (IllegalArgumentException e) {
+                throw new IOException(file.getPath() + ": " + e.getMessage());
+            }
+        } else {
+            new VMTextReader(file).replay(writer);
+        }
+    }
+
+    // Writes every command to the given writer; the writer is not closed
+    public void replay(VMWriter writer) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String text;
+            int line = 0;
+            while ((text = reader.readLine()) != null) {
+                line++;
+                int comment = text.indexOf("//");
+                if (comment >= 0) text = text.substring(0, comment);
+                text = text.trim();
+                if (text.isEmpty()) continue;
+                try {
+                    command(text.split("\\s+"), writer);
+                } catch (IllegalArgumentException e) {
+                    throw new IOException(file.getPath() + ":" + line + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private static void command(String[] words, VMWriter writer) {
+        switch (words[0]) {
+            case "push" -> writer.writePush(word(words, 1), number(words, 2));
+            case "pop" -> writer.writePop(word(words, 1), number(words, 2));
+            case "label" -> writer.writeLabel(word(words, 1));
+            case "goto" -> writer.writeGoto(word(words, 1));
+            case "if-goto" -> writer.writeIf(word(words, 1));
+            case "call" -> writer.writeCall(word(words, 1), number(words, 2));
+            case "function" -> writer.writeFunction(word(words, 1), number(words, 2));
+            case "return" -> writer.writeReturn();
+            default -> writer.writeArithmetic(words[0]);
+        }
+    }
+
+    private static String word(String[] words, int index) {
+        if (index >= words.length) throw new IllegalArgumentException("Missing operand");
+        return words[index];
+    }
+
+    private static int number(String[] words, int index) {
+        try {
+            return Integer.parseInt(word(words, index));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Bad number '" + words[index] + "'");
+        }
+    }
+}
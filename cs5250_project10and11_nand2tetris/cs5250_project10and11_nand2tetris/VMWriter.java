@@ -1,54 +1,26 @@
 package cs5250_project10and11_nand2tetris;
 
-import java.io.PrintWriter;
-
 // PROJECT 11 SESSION
-// Custom Java PrintWriter for VM file writing
-public class VMWriter {
-    private final PrintWriter writer;
-
-    public VMWriter(PrintWriter writer) {
-        this.writer = writer;
-    }
+// Emits VM commands. PrintVMWriter formats through a PrintWriter; BufferedVMWriter
+// encodes straight into a byte buffer and is what the compiler uses for .vm files.
+public interface VMWriter {
+    void writePush(String segment, int index);
 
-    public void writePush(String segment, int index) {
-        writer.printf("push %s %d%n", segment, index);
-    }
+    void writePop(String segment, int index);
 
-    public void writePop(String segment, int index) {
-        writer.printf("pop %s %d%n", segment, index);
-    }
+    void writeArithmetic(String command);
 
-    public void writeArithmetic(String command) {
-        writer.println(command);
-    }
+    void writeLabel(String label);
 
-    public void writeLabel(String label) {
-        writer.printf("label %s%n", label);
-    }
+    void writeGoto(String label);
 
-    public void writeGoto(String label) {
-        writer.printf("goto %s%n", label);
-    }
+    void writeIf(String label);
 
-    public void writeIf(String label) {
-        writer.printf("if-goto %s%n", label);
-    }
+    void writeCall(String name, int nArgs);
 
-    public void writeCall(String name, int nArgs) {
-        writer.printf("call %s %d%n", name, nArgs);
-    }
+    void writeFunction(String name, int nLocals);
 
-    public void writeFunction(String name, int nLocals) {
-        writer.printf("function %s %d%n", name, nLocals);
-    }
+    void writeReturn();
 
-    public void writeReturn() {
-        writer.println("return");
-    }
-
-    public void close() {
-        writer.close();
-    }
+    void close();
 }
-
@@ -0,0 +1,114 @@
+package cs5250_project10and11_nand2tetris;
+
+import java.io.*;
+import java.nio.charset.Charset;
+
+import cs5250_project10and11_nand2tetris.Tokenizer.TokenType;
+
+// ParseListener that writes the parse tree as the project 10 X.xml file.
+// Every tag line is built once up front, and escaping looks each character up in a table
+// instead of scanning the text once per special character, so a token costs a few appends
+// into the output buffer.
+public class XmlParseListener implements ParseListener {
+    private static final String NEWLINE = System.lineSeparator();
+
+    // Replacement for each ASCII character, or null when it is written as is
+    private static final String[] ESCAPES = new String[128];
+    static {
+        ESCAPES['&'] = "&amp;";
+        ESCAPES['<'] = "&lt;";
+        ESCAPES['>'] = "&gt;";
+        ESCAPES['"'] = "&quot;";
+    }
+
+    private static final String[] ENTER = new String[Rule.values().length];
+    private static final String[] EXIT = new String[Rule.values().length];
+    private static final String[] OPEN = new String[TokenType.values().length];
+    private static final String[] CLOSE = new String[TokenType.values().length];
+    static {
+        for (Rule rule : Rule.values()) {
+            ENTER[rule.ordinal()] = "<" + rule.xmlTag() + ">" + NEWLINE;
+            EXIT[rule.ordinal()] = "</" + rule.xmlTag() + ">" + NEWLINE;
+        }
+        for (TokenType type : TokenType.values()) {
+            OPEN[type.ordinal()] = "<" + type.xmlTag() + "> ";
+            CLOSE[type.ordinal()] = " </" + type.xmlTag() + ">" + NEWLINE;
+        }
+    }
+
+    private final Writer writer;
+
+    public XmlParseListener(File output) throws IOException {
+        this(new BufferedWriter(new OutputStreamWriter(new FileOutputStream(output), Charset.defaultCharset()), 1 << 16));
+    }
+
+    public XmlParseListener(Writer writer) {
+        this.writer = writer;
+    }
+
+    @Override
+    public void enter(Rule rule) {
+        write(ENTER[rule.ordinal()]);
+    }
+
+    @Override
+    public void exit(Rule rule) {
+        write(EXIT[rule.ordinal()]);
+    }
+
+    @Override
+    public void token(Tokenizer token) {
+        TokenType type = token.tokenType();
+        write(OPEN[type.ordinal()]);
+        try {
+            switch (type) {
+                case KEYWORD -> writer.write(token.keyWord().text());
+                case SYMBOL -> {
+                    char symbol = token.symbol();
+                    String escaped = symbol < 128 ? ESCAPES[symbol] : null;
+                    if (escaped != null) writer.write(escaped);
+                    else writer.write(symbol);
+                }
+                case IDENTIFIER -> writer.write(token.identifier());
+                case INT_CONST -> writer.write(Integer.toString(token.intVal()));
+                case STRING_CONST -> escape(token.stringVal(), writer);
+                default -> { }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        write(CLOSE[type.ordinal()]);
+    }
+
+    @Override
+    public void end() {
+        try {
+            writer.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void write(String text) {
+        try {
+            writer.write(text);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Writes text with &, <, > and " replaced by their XML entities. Runs without special
+    // characters are written in one call.
+    public static void escape(String text, Writer out) throws IOException {
+        int start = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            String escaped = c < 128 ? ESCAPES[c] : null;
+            if (escaped == null) continue;
+            out.write(text, start, i - start);
+            out.write(escaped);
+            start = i + 1;
+        }
+        out.write(text, start, text.length() - start);
+    }
+}